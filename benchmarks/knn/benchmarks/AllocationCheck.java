@@ -0,0 +1,101 @@
+package knn.benchmarks;
+
+import knn.Dataset;
+import knn.KnnClassifier;
+import knn.Quantization;
+import knn.SearchMethod;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Checks that classifying a dataset allocates nothing once the buffers of the thread are warmed up
+ * The allocated bytes of the thread are taken from the ThreadMXBean of HotSpot, the check fails (exit code 1) if
+ * a single byte is allocated per classification with one of the exact search methods or quantized scans.
+ * It runs in the verify phase of every build (skipped with -DskipTests), or by hand:
+ *
+ *     java -cp target/benchmarks.jar knn.benchmarks.AllocationCheck
+ */
+public class AllocationCheck {
+    private static final int QUERY_COUNT = 1024;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 5;
+    // The JIT may still allocate while it recompiles a method, so the measurement is repeated a few times
+    private static final int ATTEMPTS = 3;
+    // Search method and quantization of every checked classifier
+    private static final String[] CONFIGURATIONS = {"EXHAUSTIVE", "KD_TREE", "VP_TREE", "EXHAUSTIVE FLOAT32",
+            "EXHAUSTIVE INT8"};
+
+    /**
+     * Runs the check for every exact search method on numeric data and on data with text attributes
+     * @param args the command line arguments, not used
+     * @throws IOException if the data files can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if(!threads.isThreadAllocatedMemorySupported()){
+            System.out.println("The JVM does not count the allocated bytes of a thread");
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        PrintStream out = System.out;
+        boolean failed = false;
+        for(int textColumns : new int[]{0, 2}){
+            DataShape shape = new DataShape();
+            shape.rows = 10000;
+            shape.numericColumns = 16;
+            shape.textColumns = textColumns;
+            ArrayList<Dataset> queries = shape.readQueries(QUERY_COUNT);
+
+            for(String configuration : CONFIGURATIONS){
+                DataShape.silence();
+                String[] parts = configuration.split(" ");
+                KnnClassifier classifier = shape.createClassifier(10, SearchMethod.valueOf(parts[0]));
+                if(parts.length > 1){
+                    classifier.setQuantization(Quantization.valueOf(parts[1]));
+                }
+                for(int round = 0; round < WARMUP_ROUNDS; round++){
+                    classifyAll(classifier, queries);
+                }
+
+                long allocated = Long.MAX_VALUE;
+                for(int attempt = 0; attempt < ATTEMPTS && allocated > 0; attempt++){
+                    allocated = measure(threads, classifier, queries);
+                }
+                double perQuery = (double)allocated/(MEASURED_ROUNDS*queries.size());
+
+                System.setOut(out);
+                System.out.println(configuration+", "+textColumns+" text columns: "+perQuery+" bytes per classification");
+                failed |= allocated > 0;
+            }
+        }
+        if(failed){
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the number of bytes which the current thread allocates while classifying all queries a few times
+     */
+    private static long measure(com.sun.management.ThreadMXBean threads, KnnClassifier classifier,
+                                ArrayList<Dataset> queries){
+        long id = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(id);
+        // The call itself may allocate, so its own bytes are subtracted
+        long overhead = threads.getThreadAllocatedBytes(id)-start;
+        start = threads.getThreadAllocatedBytes(id);
+        for(int round = 0; round < MEASURED_ROUNDS; round++){
+            classifyAll(classifier, queries);
+        }
+        return threads.getThreadAllocatedBytes(id)-start-overhead;
+    }
+
+    private static void classifyAll(KnnClassifier classifier, ArrayList<Dataset> queries){
+        for(int i = 0; i < queries.size(); i++){
+            classifier.classify(queries.get(i));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package knn.benchmarks;
+
+import knn.Attribute;
+import knn.Dataset;
+import knn.KnnClassifier;
+import knn.SearchMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of classifying many datasets at once with KnnClassifier.classifyBatch
+ * One operation is a single classified dataset.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"1", "10", "50"})
+    public int k;
+
+    private KnnClassifier classifier;
+    private ArrayList<Dataset> queries;
+
+    @Setup(Level.Trial)
+    public void setUp(DataShape shape) throws IOException {
+        DataShape.silence();
+        classifier = shape.createClassifier(k, SearchMethod.EXHAUSTIVE);
+        queries = shape.readQueries(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ArrayList<Attribute> classifyBatch(){
+        return classifier.classifyBatch(queries);
+    }
+}
@@ -0,0 +1,40 @@
+package knn.benchmarks;
+
+import knn.KnnClassifier;
+import knn.SearchMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time of a full k fold cross validation (k passes over all datasets)
+ * A whole run takes long, so every iteration is a single run. Use -p rows=... to choose smaller or larger files,
+ * the exhaustive search over 10^6 rows takes hours.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossValidationBenchmark {
+    @Param({"5", "10"})
+    public int k;
+
+    @Param({"KD_TREE", "VP_TREE", "RP_FOREST"})
+    public SearchMethod searchMethod;
+
+    private KnnClassifier classifier;
+
+    @Setup(Level.Trial)
+    public void setUp(DataShape shape) throws IOException {
+        DataShape.silence();
+        classifier = shape.createClassifier(k, searchMethod);
+    }
+
+    @Benchmark
+    public void doKFoldCross(){
+        classifier.doKFoldCross();
+    }
+}
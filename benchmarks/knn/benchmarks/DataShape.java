@@ -0,0 +1,105 @@
+package knn.benchmarks;
+
+import knn.DataReader;
+import knn.Dataset;
+import knn.KnnClassifier;
+import knn.SearchMethod;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+
+/**
+ * The shape of the synthetic data which is shared by all benchmarks (rows, dimensionality and attribute types)
+ * The default values can be overridden on the command line, e.g. -p rows=1000000 -p numericColumns=64
+ */
+@State(Scope.Benchmark)
+public class DataShape {
+    public static final int CLASSES = 8;
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"4", "16", "64"})
+    public int numericColumns;
+
+    @Param({"0", "2"})
+    public int textColumns;
+
+    /**
+     * Returns the training data file of this shape
+     * @return a File instance representing the data file
+     * @throws IOException if the file can not be written
+     */
+    public File trainingFile() throws IOException {
+        return SyntheticData.file(rows, numericColumns, textColumns, CLASSES, 1);
+    }
+
+    /**
+     * Returns the number of the output column (first column = 1)
+     * @return an int containing the output column
+     */
+    public int outputColumn(){
+        return numericColumns+textColumns+1;
+    }
+
+    /**
+     * Creates a DataReader for files of this shape
+     * @return a new DataReader instance
+     */
+    public DataReader createReader(){
+        DataReader reader = new DataReader();
+        reader.setDelimiter(",");
+        reader.setOutputColumnCount(outputColumn());
+        return reader;
+    }
+
+    /**
+     * Creates a classifier which has read the training file of this shape
+     * @param k the number of neighbours (and folds)
+     * @param searchMethod the search method of the classifier
+     * @return a new KnnClassifier instance
+     * @throws IOException if the training file can not be written
+     */
+    public KnnClassifier createClassifier(int k, SearchMethod searchMethod) throws IOException {
+        KnnClassifier classifier = new KnnClassifier();
+        classifier.setK(k);
+        classifier.setSearchMethod(searchMethod);
+        classifier.setDelimiter(",");
+        classifier.setOutputColumnCount(outputColumn());
+        classifier.setParallelIngest(true);
+        classifier.readData(trainingFile().getPath());
+        return classifier;
+    }
+
+    /**
+     * Reads query datasets which are drawn from the same distribution as the training data
+     * @param count the number of queries
+     * @return an ArrayList of Dataset instances
+     * @throws IOException if the query file can not be written
+     */
+    public ArrayList<Dataset> readQueries(int count) throws IOException {
+        File file = SyntheticData.file(count, numericColumns, textColumns, CLASSES, 2);
+        return createReader().readData(file.getPath());
+    }
+
+    /**
+     * Discards the progress messages of the classifier, so they don't end up in the benchmark output
+     */
+    public static void silence(){
+        System.setOut(new PrintStream(new OutputStream(){
+            @Override
+            public void write(int b){
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len){
+            }
+        }));
+    }
+}
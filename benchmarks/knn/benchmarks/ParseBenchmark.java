@@ -0,0 +1,51 @@
+package knn.benchmarks;
+
+import knn.DataReader;
+import knn.Dataset;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the DataReader needs to read a whole data file with each reading strategy
+ * Divide the rows by the time per operation to get the parse throughput.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    public enum Strategy { LINES, MAPPED, MAPPED_PARALLEL }
+
+    @Param
+    public Strategy strategy;
+
+    private File file;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp(DataShape shape) throws IOException {
+        file = shape.trainingFile();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public ArrayList<Dataset> readData(DataShape shape){
+        DataReader reader = shape.createReader();
+        reader.setMemoryMapped(strategy != Strategy.LINES);
+        reader.setExecutor(strategy == Strategy.MAPPED_PARALLEL ? executor : null);
+        return reader.readData(file.getPath());
+    }
+}
@@ -0,0 +1,53 @@
+package knn.benchmarks;
+
+import knn.Attribute;
+import knn.Dataset;
+import knn.KnnClassifier;
+import knn.Quantization;
+import knn.SearchMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the exhaustive search over the doubles and over the compact encodings of the store
+ * All encodings find the same neighbours, they only differ in the scanned memory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuantizedQueryBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"10"})
+    public int k;
+
+    @Param
+    public Quantization quantization;
+
+    private KnnClassifier classifier;
+    private ArrayList<Dataset> queries;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(DataShape shape) throws IOException {
+        DataShape.silence();
+        classifier = shape.createClassifier(k, SearchMethod.EXHAUSTIVE);
+        classifier.setQuantization(quantization);
+        queries = shape.readQueries(QUERY_COUNT);
+        // Encode the datasets before the measurement starts
+        classifier.classify(queries.get(0));
+    }
+
+    @Benchmark
+    public Attribute classify(){
+        Dataset query = queries.get(next);
+        next = (next+1)%queries.size();
+        return classifier.classify(query);
+    }
+}
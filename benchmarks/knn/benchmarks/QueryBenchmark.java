@@ -0,0 +1,51 @@
+package knn.benchmarks;
+
+import knn.Attribute;
+import knn.Dataset;
+import knn.KnnClassifier;
+import knn.SearchMethod;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of classifying a single dataset against all training datasets with each search method
+ * The queries are cycled, so the result is the average over many different candidates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"1", "10", "50"})
+    public int k;
+
+    @Param
+    public SearchMethod searchMethod;
+
+    private KnnClassifier classifier;
+    private ArrayList<Dataset> queries;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(DataShape shape) throws IOException {
+        DataShape.silence();
+        classifier = shape.createClassifier(k, searchMethod);
+        queries = shape.readQueries(QUERY_COUNT);
+        // Build the index before the measurement starts
+        classifier.classify(queries.get(0));
+    }
+
+    @Benchmark
+    public Attribute classify(){
+        Dataset query = queries.get(next);
+        next = (next+1)%queries.size();
+        return classifier.classify(query);
+    }
+}
@@ -0,0 +1,93 @@
+package knn.benchmarks;
+
+import knn.DataReader;
+import knn.Dataset;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Checks that the line reader and the memory mapped reader return the same datasets for a file with non-ASCII text
+ * The file contains accented and non-latin words at the borders of the fields, padded fields and fields of only
+ * non-ASCII text, which the mapped reader must not trim as whitespace. The check fails (exit code 1) on the
+ * first differing value. It runs in the verify phase of every build (skipped with -DskipTests), or by hand:
+ *
+ *     java -cp target/benchmarks.jar knn.benchmarks.ReaderConsistencyCheck
+ */
+public class ReaderConsistencyCheck {
+    private static final String[] LINES = {
+            "word;other;plain;x;class",
+            "café;Éclair;plain;1.5;a",
+            "  naïve  ; über ;plain;2;b",
+            "Ωmega;ß;日本語;-3.25;a",
+            "ä;ö;ü;0;b",
+            "plain;text;only;4;a"
+    };
+
+    /**
+     * Reads the file with both readers and compares all attributes
+     * @param args the command line arguments, not used
+     * @throws IOException if the data file can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("knn-non-ascii", ".csv");
+        file.deleteOnExit();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            for(String line : LINES){
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+
+        PrintStream out = System.out;
+        DataShape.silence();
+        ArrayList<Dataset> lineRows = read(file, false);
+        ArrayList<Dataset> mappedRows = read(file, true);
+        System.setOut(out);
+
+        String difference = compare(lineRows, mappedRows);
+        if(difference != null){
+            System.out.println("The readers differ: "+difference);
+            System.exit(1);
+        }
+        System.out.println("Both readers returned the same "+lineRows.size()+" rows");
+    }
+
+    private static ArrayList<Dataset> read(File file, boolean memoryMapped){
+        DataReader reader = new DataReader();
+        reader.setDataBeginRowCount(2);
+        reader.setOutputColumnCount(5);
+        reader.setMemoryMapped(memoryMapped);
+        return reader.readData(file.getPath());
+    }
+
+    /**
+     * Returns a description of the first difference of both lists, or null if they are equal
+     */
+    private static String compare(ArrayList<Dataset> lineRows, ArrayList<Dataset> mappedRows){
+        if(lineRows.size() != mappedRows.size()){
+            return lineRows.size()+" rows of the line reader, "+mappedRows.size()+" rows of the mapped reader";
+        }
+        for(int i = 0; i < lineRows.size(); i++){
+            Dataset line = lineRows.get(i);
+            Dataset mapped = mappedRows.get(i);
+            if(line.getAttributeCount() != mapped.getAttributeCount()){
+                return "row "+i+" has "+line.getAttributeCount()+" and "+mapped.getAttributeCount()+" attributes";
+            }
+            for(int a = 0; a < line.getAttributeCount(); a++){
+                Object expected = line.getAttribute(a).getValue();
+                Object actual = mapped.getAttribute(a).getValue();
+                if(!expected.equals(actual)){
+                    return "row "+i+", attribute "+a+": \""+expected+"\" and \""+actual+"\"";
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,131 @@
+package knn.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generates synthetic data files for the benchmarks
+ * Every class is a gaussian cluster around a random center in the numeric attributes and prefers a few words of
+ * a vocabulary in each text attribute, so the nearest neighbours are meaningful. The output column is the last one
+ * and contains the class name. Generated files are kept in the temp directory and reused by later runs.
+ */
+public class SyntheticData {
+    private static final int VOCABULARY_SIZE = 64;
+
+    private SyntheticData(){
+    }
+
+    /**
+     * Returns a generated data file with the given shape, the file is only written if it doesn't exist yet
+     * @param rows the number of rows
+     * @param numericColumns the number of numeric attributes
+     * @param textColumns the number of text attributes
+     * @param classes the number of output classes
+     * @param seed the seed of the random values
+     * @return a File instance representing the data file
+     * @throws IOException if the file can not be written
+     */
+    public static File file(int rows, int numericColumns, int textColumns, int classes, long seed) throws IOException {
+        String name = "knn-"+rows+"x"+numericColumns+"n"+textColumns+"t"+classes+"c-"+seed+".csv";
+        File file = new File(System.getProperty("java.io.tmpdir"), name);
+        if(!file.exists()){
+            File partial = new File(file.getPath()+".tmp");
+            write(partial, rows, numericColumns, textColumns, classes, seed);
+            if(!partial.renameTo(file) && !file.exists()){
+                throw new IOException("Could not create "+file);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes a new data file
+     * @param file the File which should be written
+     * @param rows the number of rows
+     * @param numericColumns the number of numeric attributes
+     * @param textColumns the number of text attributes
+     * @param classes the number of output classes
+     * @param seed the seed of the random values
+     * @throws IOException if the file can not be written
+     */
+    public static void write(File file, int rows, int numericColumns, int textColumns, int classes, long seed)
+            throws IOException {
+        // The cluster centers and vocabularies only depend on the shape, so files with different seeds
+        // (e.g. training data and queries) belong to the same distribution
+        Random shape = new Random(31L*numericColumns+textColumns+1000L*classes);
+        double[][] centers = new double[classes][numericColumns];
+        for(double[] center : centers){
+            for(int a = 0; a < numericColumns; a++){
+                center[a] = shape.nextDouble()*20.0-10.0;
+            }
+        }
+        String[][] vocabularies = new String[textColumns][VOCABULARY_SIZE];
+        for(String[] vocabulary : vocabularies){
+            for(int w = 0; w < VOCABULARY_SIZE; w++){
+                vocabulary[w] = word(shape, 4+shape.nextInt(8));
+            }
+        }
+
+        Random random = new Random(seed);
+        StringBuilder line = new StringBuilder();
+        try(BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)){
+            for(int r = 0; r < rows; r++){
+                int c = random.nextInt(classes);
+                line.setLength(0);
+                for(int a = 0; a < numericColumns; a++){
+                    appendFixed(line, centers[c][a]+random.nextGaussian()*3.0);
+                    line.append(',');
+                }
+                for(String[] vocabulary : vocabularies){
+                    int w = random.nextInt(4) == 0 ? random.nextInt(VOCABULARY_SIZE)
+                            : (c*5+random.nextInt(8))%VOCABULARY_SIZE;
+                    line.append(vocabulary[w]).append(',');
+                }
+                line.append("class").append(c).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    /**
+     * Generates a file from the command line: rows numericColumns textColumns classes seed filename
+     * @param args the command line arguments
+     * @throws IOException if the file can not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 6){
+            System.out.println("Usage: SyntheticData rows numericColumns textColumns classes seed filename");
+            return;
+        }
+        write(new File(args[5]), Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Long.parseLong(args[4]));
+    }
+
+    private static String word(Random random, int length){
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++){
+            chars[i] = (char)('a'+random.nextInt(26));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Appends a value with four decimals, which is much faster than formatting it
+     */
+    private static void appendFixed(StringBuilder line, double value){
+        long scaled = Math.round(value*10000.0);
+        if(scaled < 0){
+            line.append('-');
+            scaled = -scaled;
+        }
+        line.append(scaled/10000).append('.');
+        long fraction = scaled%10000;
+        for(long d = 1000; d > fraction && d > 1; d /= 10){
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+}
@@ -1,3 +1,5 @@
+package knn;
+
 /**
  * Represents an attribute of a Dataset
  * @param <T> the type of attribute (int, double or String)
@@ -1,3 +1,5 @@
+package knn;
+
 public enum AttributeTypes {
     INTEGER,
     DECIMAL,
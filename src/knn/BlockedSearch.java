@@ -0,0 +1,124 @@
+package knn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the k nearest neighbours of many candidates at once
+ * The squared Euklidian distances between a tile of candidates and a tile of training datasets are calculated
+ * with the identity ||a-b||^2 = ||a||^2 + ||b||^2 - 2*a*b, so the inner loop is a plain dot product over two
+ * contiguous arrays which stay in the cache for the whole tile. The squared norms are calculated only once.
+ * Because of the subtraction the result can differ from the direct calculation by a few ulps, so datasets which
+ * are nearly equally far away from a candidate may be ranked differently than by the exhaustive search.
+ */
+public class BlockedSearch {
+    private static final int CANDIDATE_TILE = 16;
+    private static final int TRAIN_TILE = 256;
+
+    private ArrayList<Dataset> train;
+    private int dimensions;
+    private double[] trainBlock;
+    private double[] trainNorms;
+
+    /**
+     * Creates a new blocked search over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be searched, the list must not be changed afterwards
+     */
+    public BlockedSearch(ArrayList<Dataset> train){
+        this.train = train;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+        this.trainBlock = copyRows(train, dimensions);
+        this.trainNorms = norms(trainBlock, train.size(), dimensions);
+    }
+
+    /**
+     * Returns the k nearest neighbours of every candidate
+     * @param candidates a List of Dataset instances whose neighbours should be found
+     * @param k the number of neighbours
+     * @return an array which contains the indices of the neighbours in the training list for every candidate,
+     *         ordered by ascending distance
+     */
+    public int[][] nearest(List<Dataset> candidates, int k){
+        int[][] result = new int[candidates.size()][];
+        double[] candidateBlock = copyRows(candidates, dimensions);
+        double[] candidateNorms = norms(candidateBlock, candidates.size(), dimensions);
+        double[] dots = new double[CANDIDATE_TILE*TRAIN_TILE];
+
+        for(int cFrom = 0; cFrom < candidates.size(); cFrom += CANDIDATE_TILE){
+            int cTo = Math.min(cFrom+CANDIDATE_TILE, candidates.size());
+
+            NeighbourHeap[] heaps = new NeighbourHeap[cTo-cFrom];
+            DatasetEuklidianComparator[] comparators = new DatasetEuklidianComparator[cTo-cFrom];
+            for(int c = cFrom; c < cTo; c++){
+                heaps[c-cFrom] = new NeighbourHeap(Math.min(k, train.size()));
+                comparators[c-cFrom] = new DatasetEuklidianComparator(candidates.get(c));
+            }
+
+            for(int tFrom = 0; tFrom < train.size(); tFrom += TRAIN_TILE){
+                int tTo = Math.min(tFrom+TRAIN_TILE, train.size());
+
+                // Dot products of the whole tile
+                for(int c = cFrom; c < cTo; c++){
+                    int cOffset = c*dimensions;
+                    int dOffset = (c-cFrom)*TRAIN_TILE;
+                    for(int t = tFrom; t < tTo; t++){
+                        int tOffset = t*dimensions;
+                        double dot = 0.0;
+                        for(int a = 0; a < dimensions; a++){
+                            dot += candidateBlock[cOffset+a]*trainBlock[tOffset+a];
+                        }
+                        dots[dOffset+t-tFrom] = dot;
+                    }
+                }
+
+                // Reduce the tile to the k nearest neighbours of each candidate
+                for(int c = cFrom; c < cTo; c++){
+                    int dOffset = (c-cFrom)*TRAIN_TILE;
+                    for(int t = tFrom; t < tTo; t++){
+                        double squared = candidateNorms[c]+trainNorms[t]-2.0*dots[dOffset+t-tFrom];
+                        double dist = Math.sqrt(Math.max(squared, 0.0));
+                        NeighbourHeap heap = heaps[c-cFrom];
+                        if(dist > heap.worstDistance()){
+                            continue;
+                        }
+                        dist += comparators[c-cFrom].textDistance(train.get(t), heap.worstDistance()-dist);
+                        heap.offer(dist, t);
+                    }
+                }
+            }
+
+            for(int c = cFrom; c < cTo; c++){
+                result[c] = heaps[c-cFrom].drainSorted();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the numeric values of all datasets into one row-major array
+     */
+    private static double[] copyRows(List<Dataset> datasets, int dimensions){
+        double[] block = new double[datasets.size()*dimensions];
+        for(int i = 0; i < datasets.size(); i++){
+            Dataset d = datasets.get(i);
+            System.arraycopy(d.getStore().getNumericBlock(), d.getRow()*dimensions, block, i*dimensions, dimensions);
+        }
+        return block;
+    }
+
+    /**
+     * Calculates the squared norm of every row
+     */
+    private static double[] norms(double[] block, int rows, int dimensions){
+        double[] norms = new double[rows];
+        for(int r = 0; r < rows; r++){
+            double sum = 0.0;
+            for(int a = 0; a < dimensions; a++){
+                double v = block[r*dimensions+a];
+                sum += v*v;
+            }
+            norms[r] = sum;
+        }
+        return norms;
+    }
+}
@@ -0,0 +1,89 @@
+package knn;
+
+import java.util.Arrays;
+
+/**
+ * A growable min-heap of nodes ordered by their distance, e.g. the nodes which are still to be expanded by a search
+ */
+class CandidateQueue {
+    private double[] distances = new double[16];
+    private int[] nodes = new int[16];
+    private int size = 0;
+
+    /**
+     * Returns if the queue contains no nodes
+     * @return true if the queue is empty
+     */
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Returns the distance of the nearest node without removing it
+     * @return a double containing the smallest distance in the queue
+     */
+    double peekDistance(){
+        return distances[0];
+    }
+
+    /**
+     * Adds a node to the queue
+     * @param distance the distance of the node
+     * @param node the index of the node
+     */
+    void add(double distance, int node){
+        if(size == nodes.length){
+            distances = Arrays.copyOf(distances, size*2);
+            nodes = Arrays.copyOf(nodes, size*2);
+        }
+        int i = size++;
+        while(i > 0){
+            int parent = (i-1) >>> 1;
+            if(distances[parent] <= distance){
+                break;
+            }
+            distances[i] = distances[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+        }
+        distances[i] = distance;
+        nodes[i] = node;
+    }
+
+    /**
+     * Removes the nearest node from the queue
+     * @return an int containing the index of the nearest node
+     */
+    int poll(){
+        int top = nodes[0];
+        size--;
+        double distance = distances[size];
+        int node = nodes[size];
+        int i = 0;
+        while(true){
+            int child = 2*i+1;
+            if(child >= size){
+                break;
+            }
+            if(child+1 < size && distances[child+1] < distances[child]){
+                child++;
+            }
+            if(distances[child] >= distance){
+                break;
+            }
+            distances[i] = distances[child];
+            nodes[i] = nodes[child];
+            i = child;
+        }
+        distances[i] = distance;
+        nodes[i] = node;
+        return top;
+    }
+
+    /**
+     * Removes all nodes from the queue, the arrays are kept for the next search
+     */
+    void clear(){
+        size = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package knn;
+
+/**
+ * The Chebyshev distance of the numeric attributes, the largest absolute difference
+ */
+public class ChebyshevMetric implements DistanceMetric {
+
+    /**
+     * Creates a new instance of the Chebyshev metric
+     */
+    public ChebyshevMetric(){
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        double dist = 0.0;
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS){
+            // The maximum does not depend on the order, so the row can be abandoned by the first difference
+            // which is larger than the bound
+            for(int i = 0; i < order.length; i++){
+                dist = Math.max(dist, Math.abs(row[offset+order[i]]-orderedCandidate[i]));
+                if(dist > bound){
+                    return Double.POSITIVE_INFINITY;
+                }
+            }
+            return dist;
+        }
+
+        for(int i = 0; i < candidate.length; i++){
+            dist = Math.max(dist, Math.abs(row[offset+i]-candidate[i]));
+        }
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        return difference;
+    }
+
+    @Override
+    public boolean isMetric(){
+        return true;
+    }
+}
@@ -0,0 +1,296 @@
+package knn;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of the phases of a KnnClassifier
+ * The values are recorded while reading, cross validating and classifying and can be read as a Snapshot or watched
+ * over JMX after calling register. Recording allocates nothing, so classify stays free of allocations.
+ */
+public class ClassifierMetrics implements ClassifierMetricsMXBean {
+    private final Histogram parseNanos = new Histogram();
+    private final Histogram categorizeNanos = new Histogram();
+    private final Histogram packCreationNanos = new Histogram();
+    private final Histogram foldPassNanos = new Histogram();
+    private final Histogram classifyNanos = new Histogram();
+    private final Histogram distanceEvaluations = new Histogram();
+    private final Histogram visitedNodes = new Histogram();
+    private final Histogram prunedNodes = new Histogram();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private volatile double rowsPerSecond = 0.0;
+    private ObjectName registeredName;
+
+    /**
+     * Creates a new instance without recorded values
+     */
+    public ClassifierMetrics(){
+    }
+
+    /**
+     * Records the reading of a data file
+     * @param parseNanos a long representing the nanoseconds used for parsing
+     * @param categorizeNanos a long representing the nanoseconds used for categorizing the rows
+     * @param rows an int representing the number of read rows
+     */
+    void recordRead(long parseNanos, long categorizeNanos, int rows){
+        this.parseNanos.record(parseNanos);
+        this.categorizeNanos.record(categorizeNanos);
+        rowsRead.addAndGet(rows);
+        long nanos = parseNanos+categorizeNanos;
+        rowsPerSecond = nanos > 0 ? rows*1e9/nanos : 0.0;
+    }
+
+    /**
+     * Records the creation of the packs of a cross validation
+     * @param nanos a long representing the nanoseconds used
+     */
+    void recordPackCreation(long nanos){
+        packCreationNanos.record(nanos);
+    }
+
+    /**
+     * Records a pass of a k fold cross validation
+     * @param nanos a long representing the nanoseconds used
+     */
+    void recordFoldPass(long nanos){
+        foldPassNanos.record(nanos);
+    }
+
+    /**
+     * Records a query, the counters of the comparator are taken as the work of the query
+     * @param nanos a long representing the nanoseconds used
+     * @param cmp the DatasetEuklidianComparator which was used for the query
+     */
+    void recordQuery(long nanos, DatasetEuklidianComparator cmp){
+        classifyNanos.record(nanos);
+        distanceEvaluations.record(cmp.getDistanceEvaluations());
+        visitedNodes.record(cmp.getVisitedNodes());
+        prunedNodes.record(cmp.getPrunedNodes());
+    }
+
+    /**
+     * Registers the metrics at the platform MBeanServer as "knn:type=KnnClassifier,name=" followed by the given name
+     * @param name a String representing the name of the classifier
+     * @throws JMException if the name is not valid or is already registered
+     */
+    public synchronized void register(String name) throws JMException {
+        if(registeredName != null){
+            unregister();
+        }
+        ObjectName objectName = new ObjectName("knn:type=KnnClassifier,name="+ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    /**
+     * Removes the metrics from the platform MBeanServer, nothing happens if they are not registered
+     * @throws JMException if the metrics can not be removed
+     */
+    public synchronized void unregister() throws JMException {
+        if(registeredName != null){
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(registeredName)){
+                server.unregisterMBean(registeredName);
+            }
+            registeredName = null;
+        }
+    }
+
+    /**
+     * Returns a copy of all recorded values
+     * @return a Snapshot instance which is not changed by values recorded afterwards
+     */
+    public Snapshot snapshot(){
+        return new Snapshot(this);
+    }
+
+    @Override
+    public Histogram.Snapshot getParseNanos(){
+        return parseNanos.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getCategorizeNanos(){
+        return categorizeNanos.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getPackCreationNanos(){
+        return packCreationNanos.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getFoldPassNanos(){
+        return foldPassNanos.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getClassifyNanos(){
+        return classifyNanos.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getDistanceEvaluations(){
+        return distanceEvaluations.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getVisitedNodes(){
+        return visitedNodes.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getPrunedNodes(){
+        return prunedNodes.snapshot();
+    }
+
+    @Override
+    public long getRowsRead(){
+        return rowsRead.get();
+    }
+
+    @Override
+    public double getRowsPerSecond(){
+        return rowsPerSecond;
+    }
+
+    @Override
+    public void reset(){
+        parseNanos.reset();
+        categorizeNanos.reset();
+        packCreationNanos.reset();
+        foldPassNanos.reset();
+        classifyNanos.reset();
+        distanceEvaluations.reset();
+        visitedNodes.reset();
+        prunedNodes.reset();
+        rowsRead.set(0);
+        rowsPerSecond = 0.0;
+    }
+
+    /**
+     * The metrics of a classifier at one point in time
+     */
+    public static class Snapshot {
+        private final Histogram.Snapshot parseNanos;
+        private final Histogram.Snapshot categorizeNanos;
+        private final Histogram.Snapshot packCreationNanos;
+        private final Histogram.Snapshot foldPassNanos;
+        private final Histogram.Snapshot classifyNanos;
+        private final Histogram.Snapshot distanceEvaluations;
+        private final Histogram.Snapshot visitedNodes;
+        private final Histogram.Snapshot prunedNodes;
+        private final long rowsRead;
+        private final double rowsPerSecond;
+
+        private Snapshot(ClassifierMetrics metrics){
+            parseNanos = metrics.getParseNanos();
+            categorizeNanos = metrics.getCategorizeNanos();
+            packCreationNanos = metrics.getPackCreationNanos();
+            foldPassNanos = metrics.getFoldPassNanos();
+            classifyNanos = metrics.getClassifyNanos();
+            distanceEvaluations = metrics.getDistanceEvaluations();
+            visitedNodes = metrics.getVisitedNodes();
+            prunedNodes = metrics.getPrunedNodes();
+            rowsRead = metrics.getRowsRead();
+            rowsPerSecond = metrics.getRowsPerSecond();
+        }
+
+        /**
+         * Returns the durations of parsing data files
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getParseNanos(){
+            return parseNanos;
+        }
+
+        /**
+         * Returns the durations of categorizing the rows of data files
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getCategorizeNanos(){
+            return categorizeNanos;
+        }
+
+        /**
+         * Returns the durations of creating the packs
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getPackCreationNanos(){
+            return packCreationNanos;
+        }
+
+        /**
+         * Returns the durations of the passes of k fold cross validations
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getFoldPassNanos(){
+            return foldPassNanos;
+        }
+
+        /**
+         * Returns the durations of classifying a single dataset
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getClassifyNanos(){
+            return classifyNanos;
+        }
+
+        /**
+         * Returns the number of distances calculated per query
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getDistanceEvaluations(){
+            return distanceEvaluations;
+        }
+
+        /**
+         * Returns the number of tree nodes visited per query
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getVisitedNodes(){
+            return visitedNodes;
+        }
+
+        /**
+         * Returns the number of subtrees skipped per query
+         * @return a Histogram.Snapshot instance
+         */
+        public Histogram.Snapshot getPrunedNodes(){
+            return prunedNodes;
+        }
+
+        /**
+         * Returns the number of rows which were read from data files
+         * @return a long containing the number of rows
+         */
+        public long getRowsRead(){
+            return rowsRead;
+        }
+
+        /**
+         * Returns the number of rows per second of the last read data file
+         * @return a double containing the rows per second
+         */
+        public double getRowsPerSecond(){
+            return rowsPerSecond;
+        }
+
+        @Override
+        public String toString(){
+            return "Parse (ns): "+parseNanos+"\n"
+                    +"Categorize (ns): "+categorizeNanos+"\n"
+                    +"Pack creation (ns): "+packCreationNanos+"\n"
+                    +"Fold pass (ns): "+foldPassNanos+"\n"
+                    +"Classify (ns): "+classifyNanos+"\n"
+                    +"Distance evaluations per query: "+distanceEvaluations+"\n"
+                    +"Visited nodes per query: "+visitedNodes+"\n"
+                    +"Pruned nodes per query: "+prunedNodes+"\n"
+                    +"Rows read: "+rowsRead+" ("+String.format("%.0f", rowsPerSecond)+" rows per second)";
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package knn;
+
+/**
+ * The metrics of a KnnClassifier as they are shown in JMX (e.g. in JConsole or VisualVM)
+ * All durations are in nanoseconds, the histograms are shown as composite attributes.
+ */
+public interface ClassifierMetricsMXBean {
+
+    /**
+     * Returns the durations of parsing data files, without categorizing the rows
+     * @return a Histogram.Snapshot with one value per read file
+     */
+    Histogram.Snapshot getParseNanos();
+
+    /**
+     * Returns the durations of categorizing the rows of data files, including removing the outliers
+     * @return a Histogram.Snapshot with one value per read file
+     */
+    Histogram.Snapshot getCategorizeNanos();
+
+    /**
+     * Returns the durations of creating the packs of a cross validation
+     * @return a Histogram.Snapshot with one value per cross validation
+     */
+    Histogram.Snapshot getPackCreationNanos();
+
+    /**
+     * Returns the durations of the passes of k fold cross validations
+     * @return a Histogram.Snapshot with one value per pass, parallel passes count the time of all their chunks
+     */
+    Histogram.Snapshot getFoldPassNanos();
+
+    /**
+     * Returns the durations of classifying a single dataset
+     * @return a Histogram.Snapshot with one value per query of classify and of the cross validations
+     */
+    Histogram.Snapshot getClassifyNanos();
+
+    /**
+     * Returns the number of distances which were calculated per query
+     * @return a Histogram.Snapshot with one value per query, distances abandoned early are counted as well
+     */
+    Histogram.Snapshot getDistanceEvaluations();
+
+    /**
+     * Returns the number of tree nodes which were visited per query
+     * @return a Histogram.Snapshot with one value per query, 0 if no tree index is used
+     */
+    Histogram.Snapshot getVisitedNodes();
+
+    /**
+     * Returns the number of subtrees which were skipped per query because they can not contain a neighbour
+     * @return a Histogram.Snapshot with one value per query, 0 if no tree index is used
+     */
+    Histogram.Snapshot getPrunedNodes();
+
+    /**
+     * Returns the number of rows which were read from data files
+     * @return a long containing the number of rows
+     */
+    long getRowsRead();
+
+    /**
+     * Returns the number of rows per second which were parsed and categorized while reading the last data file
+     * @return a double containing the rows per second, or 0 if no file was read
+     */
+    double getRowsPerSecond();
+
+    /**
+     * Removes all recorded values
+     */
+    void reset();
+}
@@ -0,0 +1,178 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Statistics of the numeric attributes of a DatasetStore (number of values, minimum, maximum, mean and variance per
+ * attribute)
+ * The mean and the variance are updated with every row by Welford's algorithm, so they are gathered in a single pass
+ * while the rows are read and stay accurate for large values. Statistics of different chunks of rows can be merged.
+ */
+public class ColumnStatistics {
+    private long count = 0;
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    private double[] mean = new double[0];
+    // Sum of the squared differences from the mean
+    private double[] m2 = new double[0];
+
+    /**
+     * Creates new empty statistics
+     */
+    public ColumnStatistics(){
+    }
+
+    /**
+     * Adds the numeric values of a range of rows to the statistics
+     * @param store the DatasetStore which contains the rows
+     * @param fromRow the index of the first row (inclusive)
+     * @param toRow the index after the last row (exclusive)
+     */
+    public void add(DatasetStore store, int fromRow, int toRow){
+        int dimensions = store.getNumericCount();
+        ensureDimensions(dimensions);
+        double[] block = store.getNumericBlock();
+        for(int row = fromRow; row < toRow; row++){
+            int offset = row*dimensions;
+            count++;
+            double weight = 1.0/count;
+            for(int a = 0; a < dimensions; a++){
+                double v = block[offset+a];
+                if(v < min[a]) min[a] = v;
+                if(v > max[a]) max[a] = v;
+                double delta = v-mean[a];
+                mean[a] += delta*weight;
+                m2[a] += delta*(v-mean[a]);
+            }
+        }
+    }
+
+    /**
+     * Adds the statistics of another chunk of rows to these statistics
+     * @param other the ColumnStatistics instance which should be added
+     */
+    public void merge(ColumnStatistics other){
+        if(other.count == 0){
+            return;
+        }
+        ensureDimensions(other.min.length);
+        long total = count+other.count;
+        for(int a = 0; a < other.min.length; a++){
+            min[a] = Math.min(min[a], other.min[a]);
+            max[a] = Math.max(max[a], other.max[a]);
+
+            // Combination of the means and squared differences of both parts (Chan et al.)
+            double delta = other.mean[a]-mean[a];
+            mean[a] += delta*other.count/total;
+            m2[a] += other.m2[a]+delta*delta*((double)count*other.count/total);
+        }
+        count = total;
+    }
+
+    /**
+     * Returns the number of rows in the statistics
+     * @return a long containing the number of rows
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * Returns the number of numeric attributes
+     * @return an int containing the number of numeric attributes
+     */
+    public int getDimensions(){
+        return min.length;
+    }
+
+    /**
+     * Returns the smallest value of a numeric attribute
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the minimum
+     */
+    public double getMin(int slot){
+        return min[slot];
+    }
+
+    /**
+     * Returns the largest value of a numeric attribute
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the maximum
+     */
+    public double getMax(int slot){
+        return max[slot];
+    }
+
+    /**
+     * Returns the mean of a numeric attribute
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the mean, or 0 if there are no rows
+     */
+    public double getMean(int slot){
+        return mean[slot];
+    }
+
+    /**
+     * Returns the variance of a numeric attribute over all rows (population variance)
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the variance, or 0 if there are no rows
+     */
+    public double getVariance(int slot){
+        return count == 0 ? 0.0 : m2[slot]/count;
+    }
+
+    /**
+     * Returns the standard deviation of a numeric attribute over all rows
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the standard deviation, or 0 if there are no rows
+     */
+    public double getStandardDeviation(int slot){
+        return Math.sqrt(getVariance(slot));
+    }
+
+    /**
+     * Writes the statistics to a snapshot
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeLong(count);
+        SnapshotIO.writeDoubles(out, min, min.length);
+        SnapshotIO.writeDoubles(out, max, max.length);
+        SnapshotIO.writeDoubles(out, mean, mean.length);
+        SnapshotIO.writeDoubles(out, m2, m2.length);
+    }
+
+    /**
+     * Reads statistics which were written by writeSnapshot
+     * @param in a ByteBuffer positioned at the start of the statistics
+     * @return a new ColumnStatistics instance
+     */
+    static ColumnStatistics readSnapshot(ByteBuffer in){
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.count = in.getLong();
+        statistics.min = SnapshotIO.readDoubles(in);
+        statistics.max = SnapshotIO.readDoubles(in);
+        statistics.mean = SnapshotIO.readDoubles(in);
+        statistics.m2 = SnapshotIO.readDoubles(in);
+        return statistics;
+    }
+
+    private void ensureDimensions(int dimensions){
+        if(min.length >= dimensions){
+            return;
+        }
+        int old = min.length;
+        min = Arrays.copyOf(min, dimensions);
+        max = Arrays.copyOf(max, dimensions);
+        mean = Arrays.copyOf(mean, dimensions);
+        m2 = Arrays.copyOf(m2, dimensions);
+        for(int a = old; a < dimensions; a++){
+            min[a] = Double.POSITIVE_INFINITY;
+            max[a] = Double.NEGATIVE_INFINITY;
+        }
+    }
+}
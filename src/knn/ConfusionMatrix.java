@@ -0,0 +1,138 @@
+package knn;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Represents a confusion matrix
+ */
+public class ConfusionMatrix {
+
+    private ArrayList<Attribute> outputCategories = new ArrayList<>();
+    // Index of every category value, so a prediction given as Attribute is found without a search
+    private HashMap<Object, Integer> categoryIndices = new HashMap<>();
+    // Row major, the row is the reference and the column the prediction
+    private long[] matrix;
+    private int size;
+
+    /**
+     * Creates a new empty confusion matrix
+     */
+    public ConfusionMatrix(){
+    }
+
+    /**
+     * Sets the possible categories of the output to create the corresponding confusion matrix
+     * @param outputCategories an ArrayList of Attribute instances representing the possible output categories
+     */
+    public void setOutputCategories(ArrayList<Attribute> outputCategories){
+        this.outputCategories = outputCategories;
+        categoryIndices = new HashMap<>();
+        for(int i = outputCategories.size()-1; i >= 0; i--){
+            categoryIndices.put(outputCategories.get(i).getValue(), i);
+        }
+        resetMatrix();
+    }
+
+    /**
+     * Increments a field in the confusion matrix
+     * @param prediction the predicted category
+     * @param reference the actual reference category
+     */
+    public void increment(Attribute prediction, Attribute reference){
+        if(prediction == null || reference == null){
+            return;
+        }
+        Integer predIndex = categoryIndices.get(prediction.getValue());
+        Integer refIndex = categoryIndices.get(reference.getValue());
+        if(predIndex != null && refIndex != null){
+            increment(predIndex, refIndex);
+        }
+    }
+
+    /**
+     * Increments a field in the confusion matrix
+     * @param prediction the index of the predicted category in the output categories
+     * @param reference the index of the actual reference category in the output categories
+     */
+    public void increment(int prediction, int reference){
+        if(matrix == null || prediction < 0 || reference < 0 || prediction >= size || reference >= size) {
+            return;
+        }
+        matrix[reference*size+prediction]++;
+    }
+
+    /**
+     * Creates a new empty confusion matrix with the same output categories
+     * Partial matrices are used to count the predictions of a single thread and are merged afterwards
+     * @return a new ConfusionMatrix instance with all values set to zero
+     */
+    public ConfusionMatrix createPartial(){
+        ConfusionMatrix partial = new ConfusionMatrix();
+        partial.setOutputCategories(outputCategories);
+        return partial;
+    }
+
+    /**
+     * Adds all values of another confusion matrix with the same output categories to this matrix
+     * @param partial the ConfusionMatrix instance which should be added
+     */
+    public synchronized void merge(ConfusionMatrix partial){
+        if(matrix == null || partial.matrix == null || partial.size != size){
+            return;
+        }
+        for(int i = 0; i < matrix.length; i++){
+            matrix[i] += partial.matrix[i];
+        }
+    }
+
+    /**
+     * Resets the confusion matrix values
+     */
+    public void resetMatrix(){
+        size = outputCategories.size();
+        matrix = new long[size*size];
+    }
+
+    /**
+     * Prints the confusion matrix to stdout
+     */
+    public void printMatrix(){
+        //TODO pretty print matrix to console
+        for (Attribute attr:outputCategories) {
+            System.out.print(attr.getValue()+"   ");
+        }
+        System.out.println("\n-------------------------------------");
+        for(int i = 0; i < size; i++){
+            for(int j = 0; j < size; j++){
+                System.out.print(matrix[i*size+j]+"   ");
+            }
+            System.out.print("\n");
+        }
+        System.out.println("-------------------------------------");
+        System.out.println("Vertical axis: Reference");
+        System.out.println("Horizontal axis: Prediction");
+        System.out.println("-------------------------------------");
+
+        //Print accuracy
+        System.out.println("Accuracy: "+new DecimalFormat("#.##").format(getAccuracy()*100)+"%");
+    }
+
+    /**
+     * Calculates the share of correct predictions
+     * @return a double containing the accuracy between 0 and 1, or NaN if the matrix is empty
+     */
+    public double getAccuracy(){
+        long count = 0;
+        long correct = 0;
+        for(int i = 0; i < size; i++){
+            for(int j = 0; j < size; j++){
+                count += matrix[i*size+j];
+            }
+            correct += matrix[i*size+i];
+        }
+        return (double)correct/(double)count;
+    }
+
+}
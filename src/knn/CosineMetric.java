@@ -0,0 +1,47 @@
+package knn;
+
+/**
+ * The cosine distance of the numeric attributes, 1 minus the cosine of the angle between the two rows
+ * The norms of the training rows are calculated once per store, so a distance only needs the dot product.
+ * The cosine distance does not satisfy the triangle inequality, so the tree indexes fall back to the exhaustive search.
+ */
+public class CosineMetric implements DistanceMetric {
+
+    /**
+     * Creates a new instance of the cosine metric
+     */
+    public CosineMetric(){
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        double dist;
+        if(rowNorm == 0.0 || candidateNorm == 0.0){
+            // A row of zeros has no direction, it is only near to another row of zeros
+            dist = rowNorm == candidateNorm ? 0.0 : 1.0;
+        }else{
+            double dot = 0.0;
+            for(int i = 0; i < candidate.length; i++){
+                dot += row[offset+i]*candidate[i];
+            }
+            dist = Math.max(0.0, 1.0-dot/(rowNorm*candidateNorm));
+        }
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        return 0.0;
+    }
+
+    @Override
+    public boolean isMetric(){
+        return false;
+    }
+
+    @Override
+    public boolean usesNorms(){
+        return true;
+    }
+}
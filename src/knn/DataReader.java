@@ -0,0 +1,256 @@
+package knn;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A class for reading datasets from a file
+ */
+public class DataReader {
+    // Number of rows which the line reader passes to the listener at once, the statistics of a block are gathered
+    // while its rows are still in the cache
+    private static final int LISTENER_BLOCK_ROWS = 4096;
+
+    private int dataBeginRowCount = 1;
+    private ArrayList<Integer> ignoredColumns = new ArrayList<>();
+    private String delimiter = ";";
+    private int outputColumnCount = -1;
+    private boolean memoryMapped = false;
+    private ExecutorService executor;
+
+    /**
+     * Creates a new instance of a DataReader
+     */
+    public DataReader(){
+    }
+
+    /**
+     * Sets the row number where the data in the file begins (first line = 1)
+     * @param row an int representing the row number
+     */
+    public void setDataBeginRowCount(int row){
+        this.dataBeginRowCount = row;
+    }
+
+    /**
+     * Sets a column to ignored state (first column = 1)
+     * @param column an int representing the column number
+     */
+    public void addIgnoredColumn(int column){
+        this.ignoredColumns.add(column);
+    }
+
+    /**
+     * Sets the delimiter of the attributes in the data file
+     * @param delimiter a String containing the delimiter
+     */
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Sets the column which represents the output value (first column = 1)
+     * @param column an int representing the column number
+     */
+    public void setOutputColumnCount(int column){
+        if(column > 0){
+            this.outputColumnCount = column;
+        }
+    }
+
+    /**
+     * Sets if the data file should be mapped into memory and parsed directly from its bytes (see MappedCsvParser)
+     * This needs a delimiter which is a single character, otherwise the file is read line by line
+     * @param memoryMapped a boolean representing the desired action
+     */
+    public void setMemoryMapped(boolean memoryMapped){
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Sets the executor which parses chunks of a memory mapped data file in parallel
+     * @param executor an ExecutorService instance, or null if the file should be parsed on the calling thread
+     */
+    public void setExecutor(ExecutorService executor){
+        this.executor = executor;
+    }
+
+    /**
+     * Returns all ignored columns
+     * @return an ArrayList of Integers representing all columns in ignored state
+     */
+    public ArrayList<Integer> getIgnoredColumns() {
+        return ignoredColumns;
+    }
+
+    /**
+     * Returns the column number where the output is located
+     * @return an int containing the output column number
+     */
+    public int getOutputColumnCount() {
+        return outputColumnCount;
+    }
+
+    /**
+     * Reads all data from a data file and returns an ArrayList containing all datasets
+     * If the output column is a numeric value, it will be stripped of at the comma for categorizing
+     * All datasets are views of one DatasetStore which holds the values in primitive columns
+     * @param filename a String representing the filename of the data file
+     * @return an ArrayList of Dataset entries
+     */
+    public ArrayList<Dataset> readData(String filename){
+        return readData(filename, null);
+    }
+
+    /**
+     * Reads all data from a data file and returns an ArrayList containing all datasets
+     * The listener receives the rows while the file is read, for memory mapped files in parallel chunks this
+     * happens while the following chunks are still being parsed. Otherwise it receives blocks of 4096 rows, so the
+     * statistics are gathered while parsing and the rows are never scanned again.
+     * @param filename a String representing the filename of the data file
+     * @param listener an IngestListener which receives the read rows, or null
+     * @return an ArrayList of Dataset entries
+     */
+    public ArrayList<Dataset> readData(String filename, IngestListener listener){
+        if(memoryMapped && delimiter.length() == 1 && delimiter.charAt(0) < 128){
+            return readMappedData(filename, listener);
+        }
+
+        ArrayList<Dataset> datasets = new ArrayList<>();
+        DatasetStore store = new DatasetStore();
+
+        String line = "";
+        int skipped = 0;
+        int notified = 0;
+
+        // Decoded as UTF-8 like the memory mapped parser, so both readers see the same text independent of the platform
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filename),
+                StandardCharsets.UTF_8))) {
+            while ((line = br.readLine()) != null) {
+                if(line.trim().isEmpty()){continue;}
+                if(skipped+1 >= dataBeginRowCount) {
+                    String[] splitted = prepareColumns(line.split(delimiter));
+
+                    // Add read attributes to the store and add the new dataset to list
+                    Dataset d = store.addRow(splitted, outputColumnCount);
+                    if(d != null) {
+                        datasets.add(d);
+                    }
+                    if(listener != null && store.size()-notified >= LISTENER_BLOCK_ROWS){
+                        notified = notifyBlock(listener, store, notified);
+                    }
+                }else{
+                    skipped++;
+                }
+
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if(listener != null && store.size() > notified){
+            notifyBlock(listener, store, notified);
+        }
+        store.trimToSize();
+        return datasets;
+    }
+
+    /**
+     * Gathers the statistics of the rows which were added since the last block and passes them to the listener
+     * @param listener the IngestListener which receives the rows
+     * @param store the DatasetStore which contains the rows
+     * @param fromRow the index of the first row of the block
+     * @return an int containing the index after the last row of the block
+     */
+    private static int notifyBlock(IngestListener listener, DatasetStore store, int fromRow){
+        int toRow = store.size();
+        ColumnStatistics statistics = new ColumnStatistics();
+        statistics.add(store, fromRow, toRow);
+        listener.rowsAdded(store, fromRow, toRow, statistics);
+        return toRow;
+    }
+
+    /**
+     * Writes the format of the data file (first data row, delimiter, output column and ignored columns) to a
+     * snapshot, memory mapping and the executor are settings of the reading and are not written
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(dataBeginRowCount);
+        SnapshotIO.writeString(out, delimiter);
+        out.writeInt(outputColumnCount);
+        int[] ignored = new int[ignoredColumns.size()];
+        for(int i = 0; i < ignored.length; i++){
+            ignored[i] = ignoredColumns.get(i);
+        }
+        SnapshotIO.writeInts(out, ignored, ignored.length);
+    }
+
+    /**
+     * Replaces the format of the data file by the one which was written by writeSnapshot
+     * @param in a ByteBuffer positioned at the start of the format
+     */
+    void readSnapshot(ByteBuffer in){
+        dataBeginRowCount = in.getInt();
+        delimiter = SnapshotIO.readString(in);
+        outputColumnCount = in.getInt();
+        ignoredColumns = new ArrayList<>();
+        for(int column : SnapshotIO.readInts(in)){
+            ignoredColumns.add(column);
+        }
+    }
+
+    /**
+     * Prepares the columns of a line for the DatasetStore, ignored columns are removed and a numeric output value is
+     * converted to an integer for categorizing
+     * @param columns a String-Array containing the values of all columns, the array is changed
+     * @return the same String-Array
+     */
+    public String[] prepareColumns(String[] columns){
+        // Remove ignored columns
+        for(int ignore : ignoredColumns){
+            if(ignore <= columns.length){
+                columns[ignore-1] = null;
+            }
+        }
+
+        // Check if output column contains a numeric value and convert it to an integer for categorizing
+        if(outputColumnCount <= columns.length && columns[outputColumnCount-1] != null){
+            String outputValue = columns[outputColumnCount-1];
+            try{
+                double d = Double.parseDouble(outputValue);
+                columns[outputColumnCount-1] = Integer.toString((int)Math.floor(d));
+            }catch(Exception e){}
+        }
+        return columns;
+    }
+
+    /**
+     * Reads all data from a data file by mapping it into memory and returns an ArrayList containing all datasets
+     * @param filename a String representing the filename of the data file
+     * @param listener an IngestListener which receives the read rows, or null
+     * @return an ArrayList of Dataset entries
+     */
+    private ArrayList<Dataset> readMappedData(String filename, IngestListener listener){
+        ArrayList<Dataset> datasets = new ArrayList<>();
+        MappedCsvParser parser = new MappedCsvParser((byte)delimiter.charAt(0), dataBeginRowCount, ignoredColumns,
+                outputColumnCount);
+        try {
+            DatasetStore store = parser.parse(filename, executor, listener);
+            for(int i = 0; i < store.size(); i++){
+                datasets.add(store.getDataset(i));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return datasets;
+    }
+}
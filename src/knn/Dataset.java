@@ -0,0 +1,93 @@
+package knn;
+
+/**
+ * Represents a single row of data
+ * A Dataset is only a view of one row in a DatasetStore, the attribute values are kept in the columns of the store
+ */
+public class Dataset {
+    private DatasetStore store;
+    private int row;
+
+    /**
+     * Creates a new instance of a Dataset in its own store
+     * @param attributes a String-Array containing all attribute values for this Dataset
+     * @param outputColumnCount the column which represents the output value (first column = 1)
+     */
+    public Dataset(String[] attributes, int outputColumnCount){
+        this.store = new DatasetStore();
+        Dataset view = store.addRow(attributes, outputColumnCount);
+        this.row = view == null ? -1 : view.row;
+    }
+
+    /**
+     * Creates a new view of a row in a store
+     * @param store the DatasetStore which contains the row
+     * @param row the index of the row in the store
+     */
+    Dataset(DatasetStore store, int row){
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Returns a single attribute from the attribute list
+     * @param index an int representing the index of the desired attribute
+     * @return an Attribute instance containing the desired attribute
+     */
+    public Attribute getAttribute(int index){
+        if(index == store.getOutputColumnCount()-1){
+            return store.getLabel(store.getLabelCode(row));
+        }
+        int slot = store.getSlot(index);
+        if(store.getType(index) == AttributeTypes.TEXT){
+            return new Attribute(store.getTextValue(slot, store.getTextCode(row, slot)), AttributeTypes.TEXT);
+        }
+        return new Attribute(store.getNumeric(row, slot), AttributeTypes.DECIMAL);
+    }
+
+    /**
+     * Returns the number of attributes in the attribute list
+     * @return an int containing the number of attributes
+     */
+    public int getAttributeCount(){
+        return row < 0 ? 0 : store.getAttributeCount();
+    }
+
+    /**
+     * Returns the column number where the output is located
+     * @return an int containing the output column number
+     */
+    public int getOutputColumnCount(){
+        return store.getOutputColumnCount();
+    }
+
+    /**
+     * Returns the store which contains the values of this Dataset
+     * @return a DatasetStore instance
+     */
+    public DatasetStore getStore(){
+        return store;
+    }
+
+    /**
+     * Returns the index of this Dataset in its store
+     * @return an int containing the row index
+     */
+    public int getRow(){
+        return row;
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof Dataset)){
+            return false;
+        }
+        Dataset other = (Dataset)o;
+        return store == other.store && row == other.row;
+    }
+
+    @Override
+    public int hashCode(){
+        return System.identityHashCode(store)*31+row;
+    }
+}
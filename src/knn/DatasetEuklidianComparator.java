@@ -0,0 +1,617 @@
+package knn;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Comparator for a Dataset, uses the Euklidian method unless another DistanceMetric is given for the numeric attributes
+ */
+public class DatasetEuklidianComparator implements Comparator<Dataset> {
+    // Rows of the Levenshtein tables, reused by all text comparisons of a thread
+    private static final ThreadLocal<int[][]> LEVENSHTEIN_ROWS = ThreadLocal.withInitial(() -> new int[2][0]);
+
+    private Dataset candidate;
+    private DatasetStore candidateStore;
+    private double[] candidateNumeric;
+    private double candidateNorm;
+    private int[] candidateCodes;
+    private String[] candidateTexts;
+    private DistanceMetric metric;
+    private boolean usesNorms;
+    private DatasetStore resolvedStore;
+    private int[] resolvedCodes;
+    private LevenshteinCache[] resolvedCaches;
+    private DatasetStore orderedStore;
+    private int[] scanOrder;
+    private double[] orderedNumeric;
+    private DatasetStore normStore;
+    private double[] norms;
+    // Work of the current query, read by the ClassifierMetrics
+    private long distanceEvaluations;
+    private long visitedNodes;
+    private long prunedNodes;
+
+    /**
+     * Creates a new instance of a Euklidian Comparator for Datasets
+     * @param candidate a Dataset to which the distance should be measured
+     */
+    public DatasetEuklidianComparator(Dataset candidate){
+        this(candidate, new EuclideanMetric());
+    }
+
+    /**
+     * Creates a new instance of a Euklidian Comparator for Datasets which uses the given kernel for numeric attributes
+     * @param candidate a Dataset to which the distance should be measured
+     * @param kernel the DistanceKernel which calculates the squared distance of the numeric attributes
+     */
+    public DatasetEuklidianComparator(Dataset candidate, DistanceKernel kernel){
+        this(candidate, new EuclideanMetric(kernel));
+    }
+
+    /**
+     * Creates a new instance of a Comparator for Datasets which uses the given metric for numeric attributes
+     * @param candidate a Dataset to which the distance should be measured
+     * @param metric the DistanceMetric which calculates the distance of the numeric attributes
+     */
+    public DatasetEuklidianComparator(Dataset candidate, DistanceMetric metric){
+        reset(candidate, metric);
+    }
+
+    /**
+     * Measures the distances to another candidate from now on, so one comparator can be reused for many queries
+     * The arrays of the previous candidate are reused if the new one has the same number of attributes
+     * @param candidate a Dataset to which the distance should be measured
+     * @param metric the DistanceMetric which calculates the distance of the numeric attributes
+     */
+    void reset(Dataset candidate, DistanceMetric metric){
+        this.candidate = candidate;
+        this.metric = metric;
+        this.usesNorms = metric.usesNorms();
+        this.candidateStore = candidate.getStore();
+        this.resolvedStore = null;
+        this.orderedStore = null;
+        this.distanceEvaluations = 0;
+        this.visitedNodes = 0;
+        this.prunedNodes = 0;
+
+        // Copy the values of the candidate once, so the distance loop only reads primitive arrays
+        int row = candidate.getRow();
+        if(candidateNumeric == null || candidateNumeric.length != candidateStore.getNumericCount()){
+            candidateNumeric = new double[candidateStore.getNumericCount()];
+        }
+        double sum = 0.0;
+        for(int i = 0; i < candidateNumeric.length; i++){
+            candidateNumeric[i] = candidateStore.getNumeric(row, i);
+            sum += candidateNumeric[i]*candidateNumeric[i];
+        }
+        this.candidateNorm = Math.sqrt(sum);
+        if(candidateCodes == null || candidateCodes.length != candidateStore.getTextCount()){
+            candidateCodes = new int[candidateStore.getTextCount()];
+            candidateTexts = new String[candidateStore.getTextCount()];
+        }
+        for(int i = 0; i < candidateCodes.length; i++){
+            candidateCodes[i] = candidateStore.getTextCode(row, i);
+            candidateTexts[i] = candidateStore.getTextValue(i, candidateCodes[i]);
+        }
+    }
+
+    /**
+     * Compares the two given objects by their distance to the candidate
+     * @param object1 first Dataset
+     * @param object2 second Dataset
+     * @return 0 if both Datasets have the same distance to the candidate,
+     *          1 if the first Dateset is farther than the second Dataset,
+     *         -1 if the first Dateset is nearer than the second Dataset
+     */
+    public int compare(Dataset object1, Dataset object2){
+        if(object1.getAttributeCount() != candidate.getAttributeCount() ||
+                object2.getAttributeCount() != candidate.getAttributeCount()){
+            return 0;
+        }
+
+        double dist1 = distance(object1);
+        double dist2 = distance(object2);
+
+        if (dist1 > dist2) {
+            return 1;
+        }
+        if (dist1 < dist2) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the candidate to which the distances are measured
+     * @return a Dataset instance
+     */
+    public Dataset getCandidate(){
+        return candidate;
+    }
+
+    /**
+     * Returns the numeric attributes of the candidate
+     * @return a double-Array containing the values in the order of the numeric slots, it must not be changed
+     */
+    double[] getCandidateNumeric(){
+        return candidateNumeric;
+    }
+
+    /**
+     * Returns the metric which calculates the distance of the numeric attributes
+     * @return a DistanceMetric instance
+     */
+    public DistanceMetric getMetric(){
+        return metric;
+    }
+
+    /**
+     * Returns a lower bound of the distance to a Dataset which differs from the candidate by the given value on
+     * a single numeric attribute
+     * @param slot the numeric slot of the attribute
+     * @param difference the absolute difference of the two values
+     * @return a double containing the lower bound
+     */
+    public double axisDistance(int slot, double difference){
+        return metric.axisDistance(slot, difference);
+    }
+
+    /**
+     * Counts a node of a tree index which is visited by the query
+     */
+    void countVisitedNode(){
+        visitedNodes++;
+    }
+
+    /**
+     * Counts a subtree of a tree index which is skipped by the query because it can not contain a neighbour
+     */
+    void countPrunedNode(){
+        prunedNodes++;
+    }
+
+    /**
+     * Returns the number of distances which were calculated since the candidate was set
+     * @return a long containing the number of distances, including the ones abandoned early
+     */
+    long getDistanceEvaluations(){
+        return distanceEvaluations;
+    }
+
+    /**
+     * Returns the number of tree nodes which were visited since the candidate was set
+     * @return a long containing the number of nodes
+     */
+    long getVisitedNodes(){
+        return visitedNodes;
+    }
+
+    /**
+     * Returns the number of subtrees which were skipped since the candidate was set
+     * @return a long containing the number of subtrees
+     */
+    long getPrunedNodes(){
+        return prunedNodes;
+    }
+
+    /**
+     * Calculates the distance between the candidate and the given Dataset
+     * Text attributes add their Levenshtein distance, all numeric attributes are combined to one distance by the metric
+     * @param object the Dataset to which the distance should be measured
+     * @return a double containing the distance, or Double.NaN if the attribute counts do not match
+     */
+    public double distance(Dataset object){
+        return distance(object, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the distance between the candidate and the given Dataset, but stops as soon as it is clear that
+     * the distance is larger than the bound (e.g. the distance of the current k-th neighbour)
+     * @param object the Dataset to which the distance should be measured
+     * @param bound the largest distance which is still of interest
+     * @return a double containing the distance, Double.POSITIVE_INFINITY if the distance is larger than the bound,
+     *         or Double.NaN if the attribute counts do not match
+     */
+    public double distance(Dataset object, double bound){
+        distanceEvaluations++;
+        DatasetStore store = object.getStore();
+        if(object.getAttributeCount() != candidate.getAttributeCount() ||
+                store.getNumericCount() != candidateNumeric.length ||
+                store.getTextCount() != candidateCodes.length){
+            return Double.NaN;
+        }
+
+        double dist = numericDistance(store, object.getRow(), bound, false);
+        if(dist > bound){
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // The text distances are whole numbers, so adding them afterwards gives exactly the same sum
+        return dist + textDistance(object, bound-dist);
+    }
+
+    /**
+     * Calculates a value which orders the Datasets exactly like their distance to the candidate, but may be cheaper
+     * If there are no text attributes, this is the rank distance of the metric (e.g. the squared Euklidian distance,
+     * see DistanceMetric.rankDistance), otherwise it is the distance. A search which only needs the order of the
+     * neighbours (the exhaustive search and the k-d tree) compares these values and their bounds.
+     * @param object the Dataset to which the distance should be measured
+     * @param bound the largest rank distance which is still of interest
+     * @return a double containing the rank distance, Double.POSITIVE_INFINITY if it is larger than the bound,
+     *         or Double.NaN if the attribute counts do not match
+     */
+    public double rankDistance(Dataset object, double bound){
+        if(candidateCodes.length > 0){
+            return distance(object, bound);
+        }
+
+        distanceEvaluations++;
+        DatasetStore store = object.getStore();
+        if(object.getAttributeCount() != candidate.getAttributeCount() ||
+                store.getNumericCount() != candidateNumeric.length ||
+                store.getTextCount() != 0){
+            return Double.NaN;
+        }
+        return numericDistance(store, object.getRow(), bound, true);
+    }
+
+    /**
+     * Returns a lower bound of the rank distance to a Dataset which differs from the candidate by the given value on
+     * a single numeric attribute, it can be compared with the values of rankDistance
+     * @param slot the numeric slot of the attribute
+     * @param difference the absolute difference of the two values
+     * @return a double containing the lower bound
+     */
+    public double rankAxisDistance(int slot, double difference){
+        return candidateCodes.length > 0 ? metric.axisDistance(slot, difference)
+                : metric.rankAxisDistance(slot, difference);
+    }
+
+    /**
+     * Calculates the distance or the rank distance of the numeric attributes of a row of the given store
+     * @return a double containing the distance, Double.POSITIVE_INFINITY if it is larger than the bound
+     */
+    private double numericDistance(DatasetStore store, int row, double bound, boolean rank){
+        // The rank distances always add up the attributes in the scan order, so they do not depend on the bound
+        if((rank || bound < Double.POSITIVE_INFINITY) && store != orderedStore){
+            resolveScanOrder(store);
+        }
+        double rowNorm = 0.0;
+        if(usesNorms){
+            if(store != normStore || row >= norms.length){
+                norms = store.getNumericNorms();
+                normStore = store;
+            }
+            rowNorm = norms[row];
+        }
+
+        int offset = row*candidateNumeric.length;
+        double candidateNorm = usesNorms ? this.candidateNorm : 0.0;
+        if(rank){
+            return metric.rankDistance(store.getNumericBlock(), offset, rowNorm, candidateNumeric, candidateNorm,
+                    scanOrder, orderedNumeric, bound);
+        }
+        return metric.distance(store.getNumericBlock(), offset, rowNorm, candidateNumeric, candidateNorm,
+                scanOrder, orderedNumeric, bound);
+    }
+
+    /**
+     * Looks up the order of descending variance of the numeric attributes in the store of the compared datasets,
+     * the metrics add up the differences in this order to abandon far rows early
+     */
+    private void resolveScanOrder(DatasetStore store){
+        scanOrder = store.getNumericScanOrder();
+        if(orderedNumeric == null || orderedNumeric.length != scanOrder.length){
+            orderedNumeric = new double[scanOrder.length];
+        }
+        for(int i = 0; i < scanOrder.length; i++){
+            orderedNumeric[i] = candidateNumeric[scanOrder[i]];
+        }
+        orderedStore = store;
+    }
+
+    /**
+     * Calculates the sum of the Levenshtein distances of all text attributes between the candidate and the given Dataset
+     * @param object the Dataset to which the distance should be measured
+     * @return a double containing the distance of the text attributes
+     */
+    public double textDistance(Dataset object){
+        return textDistance(object, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the sum of the Levenshtein distances of all text attributes between the candidate and the given
+     * Dataset, but stops as soon as the sum is larger than the bound
+     * Text values are compared by their dictionary codes, the distances of different codes are cached in the store
+     * @param object the Dataset to which the distance should be measured
+     * @param bound the largest distance which is still of interest
+     * @return a double containing the distance of the text attributes, or Double.POSITIVE_INFINITY if it is larger
+     *         than the bound
+     */
+    public double textDistance(Dataset object, double bound){
+        if(candidateCodes.length == 0){
+            return 0.0;
+        }
+
+        DatasetStore store = object.getStore();
+        int row = object.getRow();
+        resolveCodes(store);
+        double dist = 0.0;
+
+        for(int i = 0; i < candidateCodes.length; i++){
+            int code = store.getTextCode(row, i);
+            int candidateCode = resolvedCodes[i];
+            if(code == candidateCode){
+                continue;
+            }
+
+            int d = candidateCode < 0 ? -1 : resolvedCaches[i].get(candidateCode, code);
+            if(d < 0){
+                double limit = bound-dist;
+                if(limit < 0){
+                    return Double.POSITIVE_INFINITY;
+                }
+                if(limit >= Integer.MAX_VALUE){
+                    d = unlimitedCompare(candidateTexts[i], store.getTextValue(i, code));
+                }else{
+                    d = limitedCompare(candidateTexts[i], store.getTextValue(i, code), (int)limit);
+                    if(d < 0){
+                        return Double.POSITIVE_INFINITY;
+                    }
+                }
+                if(candidateCode >= 0){
+                    resolvedCaches[i].put(candidateCode, code, d);
+                }
+            }
+
+            dist += d;
+            if(dist > bound){
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Looks up the dictionary codes of the candidate's text values in the store of the compared datasets
+     * Values which are not part of that store get the code -1 and are always compared by their value
+     */
+    private void resolveCodes(DatasetStore store){
+        if(store == resolvedStore){
+            return;
+        }
+        if(resolvedCodes == null || resolvedCodes.length != candidateCodes.length){
+            resolvedCodes = new int[candidateCodes.length];
+            resolvedCaches = new LevenshteinCache[candidateCodes.length];
+        }
+        for(int i = 0; i < candidateCodes.length; i++){
+            resolvedCodes[i] = store == candidateStore ? candidateCodes[i] : store.findTextCode(i, candidateTexts[i]);
+            resolvedCaches[i] = store.getLevenshteinCache(i);
+        }
+        resolvedStore = store;
+    }
+
+    /**
+     * Returns the two rows of the Levenshtein table of the current thread, the values are not cleared
+     * @param length the number of values which each row has to hold
+     * @return an int-Array-Array containing two rows of at least the given length
+     */
+    private static int[][] levenshteinRows(int length){
+        int[][] rows = LEVENSHTEIN_ROWS.get();
+        if(rows[0].length < length){
+            rows[0] = new int[length];
+            rows[1] = new int[length];
+        }
+        return rows;
+    }
+
+    /**
+     * COPIED FROM https://commons.apache.org/sandbox/commons-text/jacoco/org.apache.commons.text.similarity/LevenshteinDistance.java.html#L337
+     *
+     * <p>Find the Levenshtein distance between two Strings.</p>
+     *
+     * <p>A higher score indicates a greater distance.</p>
+     *
+     * <p>The previous implementation of the Levenshtein distance algorithm
+     * was from <a href="https://web.archive.org/web/20120526085419/http://www.merriampark.com/ldjava.htm">
+     * https://web.archive.org/web/20120526085419/http://www.merriampark.com/ldjava.htm</a></p>
+     *
+     * <p>This implementation only need one single-dimensional arrays of length s.length() + 1</p>
+     *
+     * <pre>
+     * unlimitedCompare(null, *)             = IllegalArgumentException
+     * unlimitedCompare(*, null)             = IllegalArgumentException
+     * unlimitedCompare("","")               = 0
+     * unlimitedCompare("","a")              = 1
+     * unlimitedCompare("aaapppp", "")       = 7
+     * unlimitedCompare("frog", "fog")       = 1
+     * unlimitedCompare("fly", "ant")        = 3
+     * unlimitedCompare("elephant", "hippo") = 7
+     * unlimitedCompare("hippo", "elephant") = 7
+     * unlimitedCompare("hippo", "zzzzzzzz") = 8
+     * unlimitedCompare("hello", "hallo")    = 1
+     * </pre>
+     *
+     * @param left the first String, must not be null
+     * @param right the second String, must not be null
+     * @return result distance, or -1
+     * @throws IllegalArgumentException if either String input {@code null}
+     */
+    static int unlimitedCompare(CharSequence left, CharSequence right) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("Strings must not be null");
+        }
+
+        /*
+           This implementation use two variable to record the previous cost counts,
+           So this implementation use less memory than previous impl.
+         */
+
+        int n = left.length(); // length of left
+        int m = right.length(); // length of right
+
+        if (n == 0) {
+            return m;
+        } else if (m == 0) {
+            return n;
+        }
+
+        if (n > m) {
+            // swap the input strings to consume less memory
+            final CharSequence tmp = left;
+            left = right;
+            right = tmp;
+            n = m;
+            m = right.length();
+        }
+
+        int[] p = levenshteinRows(n + 1)[0];
+
+        // indexes into strings left and right
+        int i; // iterates through left
+        int j; // iterates through right
+        int upper_left;
+        int upper;
+
+        char rightJ; // jth character of right
+        int cost; // cost
+
+        for (i = 0; i <= n; i++) {
+            p[i] = i;
+        }
+
+        for (j = 1; j <= m; j++) {
+            upper_left = p[0];
+            rightJ = right.charAt(j - 1);
+            p[0] = j;
+
+            for (i = 1; i <= n; i++) {
+                upper = p[i];
+                cost = left.charAt(i - 1) == rightJ ? 0 : 1;
+                // minimum of cell to the left+1, to the top+1, diagonally left and up +cost
+                p[i] = Math.min(Math.min(p[i - 1] + 1, p[i] + 1), upper_left + cost);
+                upper_left = upper;
+            }
+        }
+
+        return p[n];
+    }
+
+    /**
+     * ADAPTED FROM https://commons.apache.org/sandbox/commons-text/jacoco/org.apache.commons.text.similarity/LevenshteinDistance.java.html
+     *
+     * <p>Find the Levenshtein distance between two CharSequences if it's less than or equal to a given threshold.</p>
+     *
+     * <p>This implementation only computes the diagonal stripe of width 2 * threshold + 1 of the distance table
+     * and stops as soon as every value in the current row is larger than the threshold.</p>
+     *
+     * <pre>
+     * limitedCompare("", "", 0)               = 0
+     * limitedCompare("aaapppp", "", 8)        = 7
+     * limitedCompare("aaapppp", "", 7)        = 7
+     * limitedCompare("aaapppp", "", 6)        = -1
+     * limitedCompare("elephant", "hippo", 7)  = 7
+     * limitedCompare("elephant", "hippo", 6)  = -1
+     * limitedCompare("hippo", "elephant", 7)  = 7
+     * limitedCompare("hippo", "elephant", 6)  = -1
+     * </pre>
+     *
+     * @param left the first CharSequence, must not be null
+     * @param right the second CharSequence, must not be null
+     * @param threshold the target threshold, must not be negative
+     * @return result distance, or -1 if the distance is larger than the threshold
+     */
+    static int limitedCompare(CharSequence left, CharSequence right, final int threshold) {
+        if (left == null || right == null) {
+            throw new IllegalArgumentException("Strings must not be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+
+        int n = left.length(); // length of left
+        int m = right.length(); // length of right
+
+        if (n == 0) {
+            return m <= threshold ? m : -1;
+        } else if (m == 0) {
+            return n <= threshold ? n : -1;
+        }
+
+        if (n > m) {
+            // swap the two strings to consume less memory
+            final CharSequence tmp = left;
+            left = right;
+            right = tmp;
+            n = m;
+            m = right.length();
+        }
+
+        // the distance is at least the difference of the lengths
+        if (m - n > threshold) {
+            return -1;
+        }
+
+        int[][] rows = levenshteinRows(n + 1);
+        int[] p = rows[0]; // 'previous' cost array, horizontally
+        int[] d = rows[1]; // cost array, horizontally
+        int[] tempD; // placeholder to assist in swapping p and d
+
+        // fill in starting table values
+        final int boundary = Math.min(n, threshold) + 1;
+        for (int i = 0; i < boundary; i++) {
+            p[i] = i;
+        }
+        // these fills ensure that the value above the rightmost entry of our
+        // stripe will be ignored in following loop iterations
+        Arrays.fill(p, boundary, n + 1, Integer.MAX_VALUE);
+        Arrays.fill(d, 0, n + 1, Integer.MAX_VALUE);
+
+        // iterates through right
+        for (int j = 1; j <= m; j++) {
+            final char rightJ = right.charAt(j - 1); // jth character of right
+            d[0] = j;
+
+            // compute stripe indices, constrain to array size
+            final int min = Math.max(1, j - threshold);
+            final int max = j > Integer.MAX_VALUE - threshold ? n : Math.min(n, j + threshold);
+
+            // ignore entry left of leftmost
+            if (min > 1) {
+                d[min - 1] = Integer.MAX_VALUE;
+            }
+
+            // all cells outside the stripe are larger than the threshold
+            int lowest = j;
+
+            // iterates through [min, max] in left
+            for (int i = min; i <= max; i++) {
+                if (left.charAt(i - 1) == rightJ) {
+                    // diagonally left and up
+                    d[i] = p[i - 1];
+                } else {
+                    // 1 + minimum of cell to the left, to the top, diagonally left and up
+                    d[i] = 1 + Math.min(Math.min(d[i - 1], p[i]), p[i - 1]);
+                }
+                lowest = Math.min(lowest, d[i]);
+            }
+
+            // the values of the following rows can not get smaller
+            if (lowest > threshold) {
+                return -1;
+            }
+
+            // copy current distance counts to 'previous row' distance counts
+            tempD = p;
+            p = d;
+            d = tempD;
+        }
+
+        // if p[n] is greater than the threshold, there's no guarantee on it
+        // being the correct distance
+        if (p[n] <= threshold) {
+            return p[n];
+        }
+        return -1;
+    }
+}
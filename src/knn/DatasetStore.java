@@ -0,0 +1,620 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Columnar storage for all rows of a data file
+ * Numeric attributes are kept as primitive doubles in one row-major block, text attributes are dictionary-encoded
+ * to int codes per column and the output column is stored as an int-coded label.
+ * Dataset instances are lightweight views (store and row number) over this storage.
+ */
+public class DatasetStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private AttributeTypes[] types;
+    private int[] slots;
+    private int outputColumnCount = -1;
+    private int numericCount = 0;
+    private int textCount = 0;
+
+    private double[] numeric = new double[0];
+    private int[] text = new int[0];
+    private int[] labels = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private ArrayList<ArrayList<String>> textValues = new ArrayList<>();
+    private ArrayList<HashMap<String, Integer>> textCodes = new ArrayList<>();
+    private LevenshteinCache[] levenshteinCaches = new LevenshteinCache[0];
+    private int[] numericScanOrder;
+    private int numericScanOrderSize = 0;
+    private double[] numericNorms = new double[0];
+    private ArrayList<Attribute> labelValues = new ArrayList<>();
+    private HashMap<Object, Integer> labelCodes = new HashMap<>();
+
+    private NumberFormat formatter = NumberFormat.getInstance();
+
+    /**
+     * Creates a new empty store, the schema is taken from the first row which is added
+     */
+    public DatasetStore(){
+    }
+
+    /**
+     * Adds a new row to the store
+     * Checks if each attribute is a number or a text, the types of the first row define the schema of the store
+     * @param attributes a String-Array containing all attribute values of this row, ignored columns are null
+     * @param outputColumnCount the column which represents the output value (first column = 1)
+     * @return a Dataset view of the new row, or null if the row does not match the schema of the store
+     */
+    public Dataset addRow(String[] attributes, int outputColumnCount){
+        // Remove ignored columns and leading and trailing whitespaces
+        int count = 1;
+        int output = outputColumnCount;
+        ArrayList<String> values = new ArrayList<>();
+        for(String s : attributes){
+            if(s != null){
+                values.add(s.trim());
+            }else if(outputColumnCount > count){
+                output--;
+            }
+            count++;
+        }
+
+        if(types == null){
+            AttributeTypes[] rowTypes = new AttributeTypes[values.size()];
+            for(int i = 0; i < values.size(); i++){
+                rowTypes[i] = isNumber(values.get(i)) ? AttributeTypes.DECIMAL : AttributeTypes.TEXT;
+            }
+            createSchema(rowTypes, output);
+        }
+        if(values.size() != types.length || output != this.outputColumnCount){
+            return null;
+        }
+
+        // Parse all values before changing the store, so a broken row leaves no traces
+        double[] numericRow = new double[numericCount];
+        String[] textRow = new String[textCount];
+        Object label = null;
+        for(int i = 0; i < types.length; i++){
+            String value = values.get(i);
+            boolean isNumber = isNumber(value);
+            if(i == this.outputColumnCount-1){
+                label = isNumber ? (Object)Double.parseDouble(value) : value;
+            }else if(types[i] == AttributeTypes.DECIMAL){
+                if(!isNumber){
+                    return null;
+                }
+                numericRow[slots[i]] = Double.parseDouble(value);
+            }else{
+                textRow[slots[i]] = value;
+            }
+        }
+
+        appendRow(numericRow, textRow, label);
+        return new Dataset(this, size-1);
+    }
+
+    /**
+     * Returns if the schema of the store is already defined
+     * @return true if the types of all attributes are known
+     */
+    public boolean hasSchema(){
+        return types != null;
+    }
+
+    /**
+     * Defines the schema of the store, this is done by the first row which is added if it is not called before
+     * @param types an array of AttributeTypes containing the type of each attribute (ignored columns removed)
+     * @param outputColumnCount the column which represents the output value (first column = 1, ignored columns removed)
+     */
+    public void createSchema(AttributeTypes[] types, int outputColumnCount){
+        if(this.types != null){
+            throw new IllegalStateException("The schema of the store is already defined");
+        }
+        this.outputColumnCount = outputColumnCount;
+        this.types = types.clone();
+        this.slots = new int[types.length];
+        for(int i = 0; i < types.length; i++){
+            if(i == outputColumnCount-1){
+                slots[i] = -1;
+            }else if(types[i] == AttributeTypes.DECIMAL){
+                slots[i] = numericCount++;
+            }else{
+                slots[i] = textCount++;
+                textValues.add(new ArrayList<>());
+                textCodes.add(new HashMap<>());
+            }
+        }
+        numeric = new double[INITIAL_CAPACITY*numericCount];
+        text = new int[INITIAL_CAPACITY*textCount];
+    }
+
+    /**
+     * Adds a new row of already parsed values to the store
+     * @param numericRow a double-array containing the numeric values ordered by their slot, the array is copied
+     * @param textRow a String-Array containing the text values ordered by their slot
+     * @param label the value of the output column (a Double or a String), or null
+     * @return an int containing the index of the new row
+     */
+    public int appendRow(double[] numericRow, String[] textRow, Object label){
+        ensureCapacity(size+1);
+        System.arraycopy(numericRow, 0, numeric, size*numericCount, numericCount);
+        for(int t = 0; t < textCount; t++){
+            text[size*textCount+t] = encodeText(t, textRow[t]);
+        }
+        labels[size] = label == null ? -1 : encodeLabel(label);
+        return size++;
+    }
+
+    /**
+     * Creates a new empty store with the same schema as this store, e.g. for parsing a chunk of the same file
+     * @return a new DatasetStore instance without rows
+     */
+    public DatasetStore createEmptyCopy(){
+        DatasetStore copy = new DatasetStore();
+        if(types != null){
+            copy.createSchema(types, outputColumnCount);
+        }
+        return copy;
+    }
+
+    /**
+     * Appends all rows of another store with the same schema to this store
+     * The dictionary codes of the other store are translated to the codes of this store
+     * @param other the DatasetStore whose rows should be added
+     * @return an int containing the index of the first added row in this store
+     */
+    public int appendStore(DatasetStore other){
+        int first = size;
+        if(other.size == 0){
+            return first;
+        }
+        if(types == null){
+            createSchema(other.types, other.outputColumnCount);
+        }
+        if(other.numericCount != numericCount || other.textCount != textCount){
+            throw new IllegalArgumentException("The schemas of both stores do not match");
+        }
+
+        // Translate the codes of the other dictionaries once
+        int[][] textMapping = new int[textCount][];
+        for(int t = 0; t < textCount; t++){
+            ArrayList<String> values = other.textValues.get(t);
+            textMapping[t] = new int[values.size()];
+            for(int c = 0; c < values.size(); c++){
+                textMapping[t][c] = encodeText(t, values.get(c));
+            }
+        }
+        int[] labelMapping = new int[other.labelValues.size()];
+        for(int c = 0; c < labelMapping.length; c++){
+            labelMapping[c] = encodeLabel(other.labelValues.get(c).getValue());
+        }
+
+        ensureCapacity(size+other.size);
+        System.arraycopy(other.numeric, 0, numeric, size*numericCount, other.size*numericCount);
+        for(int r = 0; r < other.size; r++){
+            for(int t = 0; t < textCount; t++){
+                text[(size+r)*textCount+t] = textMapping[t][other.text[r*textCount+t]];
+            }
+            int label = other.labels[r];
+            labels[size+r] = label < 0 ? -1 : labelMapping[label];
+        }
+        size += other.size;
+        return first;
+    }
+
+    /**
+     * Creates a new store with the same schema and dictionaries which contains copies of the given rows
+     * The codes of all values stay the same, the rows are numbered in the order of the list
+     * @param datasets a List of Dataset instances of this store
+     * @return a new DatasetStore instance
+     */
+    DatasetStore copyRows(List<Dataset> datasets){
+        DatasetStore copy = createEmptyCopy();
+        for(int t = 0; t < textCount; t++){
+            copy.textValues.get(t).addAll(textValues.get(t));
+            copy.textCodes.get(t).putAll(textCodes.get(t));
+        }
+        copy.labelValues.addAll(labelValues);
+        copy.labelCodes.putAll(labelCodes);
+
+        copy.ensureCapacity(datasets.size());
+        for(Dataset dataset : datasets){
+            int row = dataset.getRow();
+            System.arraycopy(numeric, row*numericCount, copy.numeric, copy.size*numericCount, numericCount);
+            System.arraycopy(text, row*textCount, copy.text, copy.size*textCount, textCount);
+            copy.labels[copy.size] = labels[row];
+            copy.size++;
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a view of a single row
+     * @param row the index of the desired row
+     * @return a Dataset instance representing the row
+     */
+    public Dataset getDataset(int row){
+        if(row < 0 || row >= size){
+            return null;
+        }
+        return new Dataset(this, row);
+    }
+
+    /**
+     * Returns the number of rows in this store
+     * @return an int containing the number of rows
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Frees the unused capacity of all columns after the last row was added
+     */
+    public void trimToSize(){
+        numeric = Arrays.copyOf(numeric, size*numericCount);
+        text = Arrays.copyOf(text, size*textCount);
+        labels = Arrays.copyOf(labels, size);
+    }
+
+    /**
+     * Writes the schema, all columns and the dictionaries of this store to a snapshot
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        if(types == null){
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(types.length);
+        for(AttributeTypes type : types){
+            out.writeInt(type.ordinal());
+        }
+        out.writeInt(outputColumnCount);
+        out.writeInt(size);
+        SnapshotIO.writeDoubles(out, numeric, size*numericCount);
+        SnapshotIO.writeInts(out, text, size*textCount);
+        SnapshotIO.writeInts(out, labels, size);
+
+        for(int t = 0; t < textCount; t++){
+            out.writeInt(textValues.get(t).size());
+            for(String value : textValues.get(t)){
+                SnapshotIO.writeString(out, value);
+            }
+        }
+        out.writeInt(labelValues.size());
+        for(Attribute label : labelValues){
+            Object value = label.getValue();
+            if(value instanceof String){
+                out.writeByte(1);
+                SnapshotIO.writeString(out, (String)value);
+            }else{
+                out.writeByte(0);
+                out.writeDouble((Double)value);
+            }
+        }
+    }
+
+    /**
+     * Reads a store which was written by writeSnapshot, the columns are copied from the buffer without parsing
+     * @param in a ByteBuffer positioned at the start of the store
+     * @return a new DatasetStore instance
+     */
+    static DatasetStore readSnapshot(ByteBuffer in){
+        DatasetStore store = new DatasetStore();
+        int attributeCount = in.getInt();
+        if(attributeCount < 0){
+            return store;
+        }
+        AttributeTypes[] types = new AttributeTypes[attributeCount];
+        for(int i = 0; i < attributeCount; i++){
+            types[i] = AttributeTypes.values()[in.getInt()];
+        }
+        store.createSchema(types, in.getInt());
+        store.size = in.getInt();
+        store.numeric = SnapshotIO.readDoubles(in);
+        store.text = SnapshotIO.readInts(in);
+        store.labels = SnapshotIO.readInts(in);
+
+        for(int t = 0; t < store.textCount; t++){
+            int count = in.getInt();
+            for(int c = 0; c < count; c++){
+                store.encodeText(t, SnapshotIO.readString(in));
+            }
+        }
+        int labelCount = in.getInt();
+        for(int c = 0; c < labelCount; c++){
+            store.encodeLabel(in.get() == 1 ? SnapshotIO.readString(in) : (Object)in.getDouble());
+        }
+        return store;
+    }
+
+    /**
+     * Returns the number of attributes of each row (including the output column)
+     * @return an int containing the number of attributes
+     */
+    public int getAttributeCount(){
+        return types == null ? 0 : types.length;
+    }
+
+    /**
+     * Returns the column number where the output is located
+     * @return an int containing the output column number
+     */
+    public int getOutputColumnCount(){
+        return outputColumnCount;
+    }
+
+    /**
+     * Returns the type of an attribute
+     * @param index the index of the attribute
+     * @return an enum-instance of AttributeTypes representing the attribute type
+     */
+    public AttributeTypes getType(int index){
+        return types[index];
+    }
+
+    /**
+     * Returns the position of an attribute inside its numeric or text block
+     * @param index the index of the attribute
+     * @return an int containing the slot, or -1 for the output column
+     */
+    public int getSlot(int index){
+        return slots[index];
+    }
+
+    /**
+     * Returns the number of numeric attributes of each row (without the output column)
+     * @return an int containing the number of numeric attributes
+     */
+    public int getNumericCount(){
+        return numericCount;
+    }
+
+    /**
+     * Returns the number of text attributes of each row (without the output column)
+     * @return an int containing the number of text attributes
+     */
+    public int getTextCount(){
+        return textCount;
+    }
+
+    /**
+     * Returns the row-major block of all numeric values, row r starts at index r*getNumericCount()
+     * The array is shared with the store and must not be changed
+     * @return a double-array containing all numeric values
+     */
+    public double[] getNumericBlock(){
+        return numeric;
+    }
+
+    /**
+     * Returns a single numeric value
+     * @param row the index of the row
+     * @param slot the numeric slot of the attribute
+     * @return a double containing the value
+     */
+    public double getNumeric(int row, int slot){
+        return numeric[row*numericCount+slot];
+    }
+
+    /**
+     * Returns the dictionary code of a single text value
+     * @param row the index of the row
+     * @param slot the text slot of the attribute
+     * @return an int containing the code of the value
+     */
+    public int getTextCode(int row, int slot){
+        return text[row*textCount+slot];
+    }
+
+    /**
+     * Returns the text value which belongs to a dictionary code
+     * @param slot the text slot of the attribute
+     * @param code the code of the value
+     * @return a String containing the value
+     */
+    public String getTextValue(int slot, int code){
+        return textValues.get(slot).get(code);
+    }
+
+    /**
+     * Returns the dictionary code of a text value
+     * @param slot the text slot of the attribute
+     * @param value the text value
+     * @return an int containing the code of the value, or -1 if the value is not part of this store
+     */
+    public int findTextCode(int slot, String value){
+        Integer code = textCodes.get(slot).get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns the number of different values of a text attribute
+     * @param slot the text slot of the attribute
+     * @return an int containing the number of values in the dictionary
+     */
+    public int getTextValueCount(int slot){
+        return textValues.get(slot).size();
+    }
+
+    /**
+     * Returns the numeric slots ordered by descending variance of their values
+     * A distance calculation which is stopped at a bound exceeds it earlier when the columns with the largest
+     * differences are summed up first. The order is calculated with the first call and again whenever the number of
+     * rows has doubled since, in between it can be slightly outdated which only affects the speed.
+     * @return an int-Array containing every numeric slot once, it must not be changed
+     */
+    public synchronized int[] getNumericScanOrder(){
+        if(numericScanOrder != null && numericScanOrder.length == numericCount && size < 2*numericScanOrderSize){
+            return numericScanOrder;
+        }
+
+        double[] mean = new double[numericCount];
+        double[] variance = new double[numericCount];
+        for(int row = 0; row < size; row++){
+            for(int i = 0; i < numericCount; i++){
+                mean[i] += numeric[row*numericCount+i];
+            }
+        }
+        for(int i = 0; i < numericCount; i++){
+            mean[i] /= Math.max(size, 1);
+        }
+        for(int row = 0; row < size; row++){
+            for(int i = 0; i < numericCount; i++){
+                double diff = numeric[row*numericCount+i]-mean[i];
+                variance[i] += diff*diff;
+            }
+        }
+
+        Integer[] order = new Integer[numericCount];
+        for(int i = 0; i < numericCount; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(variance[b], variance[a]));
+        numericScanOrder = new int[numericCount];
+        for(int i = 0; i < numericCount; i++){
+            numericScanOrder[i] = order[i];
+        }
+        numericScanOrderSize = Math.max(size, 1);
+        return numericScanOrder;
+    }
+
+    /**
+     * Returns the Euklidian norms of the numeric attributes of all rows, e.g. for the cosine distance
+     * The norms are calculated with the first call, rows which are appended later are added by the next call
+     * @return a double-Array containing one norm per row, it must not be changed
+     */
+    public synchronized double[] getNumericNorms(){
+        if(numericNorms.length == size){
+            return numericNorms;
+        }
+
+        int from = numericNorms.length;
+        double[] norms = Arrays.copyOf(numericNorms, size);
+        for(int row = from; row < size; row++){
+            double sum = 0.0;
+            for(int i = 0; i < numericCount; i++){
+                double value = numeric[row*numericCount+i];
+                sum += value*value;
+            }
+            norms[row] = Math.sqrt(sum);
+        }
+        numericNorms = norms;
+        return numericNorms;
+    }
+
+    /**
+     * Returns the cache for the Levenshtein distances between the values of a text attribute
+     * The cache is created with the first call and holds up to one entry per pair of dictionary values
+     * (at most 65536 entries)
+     * @param slot the text slot of the attribute
+     * @return a LevenshteinCache instance which is shared by all threads
+     */
+    public synchronized LevenshteinCache getLevenshteinCache(int slot){
+        if(levenshteinCaches.length != textCount){
+            levenshteinCaches = new LevenshteinCache[textCount];
+        }
+        if(levenshteinCaches[slot] == null){
+            long pairs = (long)getTextValueCount(slot)*getTextValueCount(slot);
+            levenshteinCaches[slot] = new LevenshteinCache((int)Math.min(pairs, 1 << 16));
+        }
+        return levenshteinCaches[slot];
+    }
+
+    /**
+     * Returns the label code of a row
+     * @param row the index of the row
+     * @return an int containing the label code
+     */
+    public int getLabelCode(int row){
+        return labels[row];
+    }
+
+    /**
+     * Returns the label value which belongs to a label code
+     * @param code the label code
+     * @return an Attribute instance representing the label, the same instance is returned for every row
+     */
+    public Attribute getLabel(int code){
+        if(code < 0 || code >= labelValues.size()){
+            return null;
+        }
+        return labelValues.get(code);
+    }
+
+    /**
+     * Returns the label code of a label value
+     * @param value the value of the label (a Double or a String)
+     * @return an int containing the label code, or -1 if the value is not part of this store
+     */
+    public int findLabelCode(Object value){
+        Integer code = labelCodes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns the number of different labels in this store
+     * @return an int containing the number of labels
+     */
+    public int getLabelCount(){
+        return labelValues.size();
+    }
+
+    /**
+     * Checks if the whole value can be read as a number
+     */
+    private boolean isNumber(String value){
+        ParsePosition pos = new ParsePosition(0);
+        formatter.parse(value, pos);
+        if(value.length() != pos.getIndex()){
+            return false;
+        }
+        try{
+            Double.parseDouble(value);
+            return true;
+        }catch(Exception e){
+            return false;
+        }
+    }
+
+    private int encodeText(int slot, String value){
+        Integer code = textCodes.get(slot).get(value);
+        if(code == null){
+            code = textValues.get(slot).size();
+            textValues.get(slot).add(value);
+            textCodes.get(slot).put(value, code);
+        }
+        return code;
+    }
+
+    private int encodeLabel(Object value){
+        Integer code = labelCodes.get(value);
+        if(code == null){
+            code = labelValues.size();
+            labelValues.add(new Attribute(value, value instanceof String ? AttributeTypes.TEXT : AttributeTypes.DECIMAL));
+            labelCodes.put(value, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int rows){
+        if(rows <= labels.length){
+            return;
+        }
+        int capacity = Math.max(rows, labels.length*2);
+        numeric = Arrays.copyOf(numeric, capacity*numericCount);
+        text = Arrays.copyOf(text, capacity*textCount);
+        labels = Arrays.copyOf(labels, capacity);
+    }
+}
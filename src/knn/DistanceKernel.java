@@ -0,0 +1,33 @@
+package knn;
+
+/**
+ * Calculates the squared Euklidian distance between two rows of primitive numeric values
+ */
+public interface DistanceKernel {
+
+    /**
+     * Calculates the squared Euklidian distance between two rows
+     * @param a the array which contains the first row
+     * @param aOffset the index of the first value of the first row
+     * @param b the array which contains the second row
+     * @param bOffset the index of the first value of the second row
+     * @param length the number of values in each row
+     * @return a double containing the sum of the squared differences
+     */
+    double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    /**
+     * Returns the SIMD kernel based on the JDK Vector API if it is available, otherwise the scalar kernel
+     * The Vector API is an incubator module, so it is only available on JDK 16+ if the JVM is started with
+     * --add-modules jdk.incubator.vector
+     * @return a DistanceKernel instance
+     */
+    static DistanceKernel vectorOrScalar(){
+        try {
+            Class<?> kernel = Class.forName("knn.VectorDistanceKernel");
+            return (DistanceKernel) kernel.getDeclaredConstructor().newInstance();
+        }catch(Exception | LinkageError e){
+            return new ScalarDistanceKernel();
+        }
+    }
+}
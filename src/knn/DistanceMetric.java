@@ -0,0 +1,96 @@
+package knn;
+
+/**
+ * Calculates the distance between the numeric attributes of two rows
+ * The metric is chosen once per classifier, so the comparator always calls the same implementation and every
+ * implementation is a plain loop over primitive values. Text attributes are not part of the metric, the comparator
+ * adds their Levenshtein distance to the numeric distance.
+ */
+public interface DistanceMetric {
+    // Below this number of numeric attributes the full sum is cheaper than checking the bound in between
+    int EARLY_ABANDON_COLUMNS = 8;
+    // The partial sums are added in another order than the full sum, so a row is only abandoned if its partial sum
+    // exceeds the bound by far more than the rounding errors of the sums
+    double EARLY_ABANDON_SLACK = 1e-9;
+
+    /**
+     * Calculates the distance between a row and the candidate, but may stop as soon as it is clear that the distance
+     * is larger than the bound
+     * Rows which are not abandoned must get exactly the same distance as without a bound
+     * @param row the array which contains the row
+     * @param offset the index of the first value of the row
+     * @param rowNorm the Euklidian norm of the row if usesNorms() returns true, otherwise 0
+     * @param candidate the values of the candidate in the order of the numeric slots
+     * @param candidateNorm the Euklidian norm of the candidate if usesNorms() returns true, otherwise 0
+     * @param order the numeric slots ordered by descending variance, or null if the bound is infinite
+     * @param orderedCandidate the values of the candidate in that order, or null if the bound is infinite
+     * @param bound the largest distance which is still of interest
+     * @return a double containing the distance, or Double.POSITIVE_INFINITY if it is larger than the bound
+     */
+    double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                    int[] order, double[] orderedCandidate, double bound);
+
+    /**
+     * Returns a lower bound of the distance of two rows which differ by the given value on a single attribute,
+     * the k-d tree prunes a subtree if this bound is larger than the distance of the current k-th neighbour
+     * @param slot the numeric slot of the attribute
+     * @param difference the absolute difference of the two values
+     * @return a double containing the lower bound, 0 if the metric can not give one
+     */
+    double axisDistance(int slot, double difference);
+
+    /**
+     * Calculates a value which orders the rows exactly like distance, but may skip work which does not change the
+     * order (e.g. the root of the Euklidian distance)
+     * The searches which only need the order of the neighbours compare these values, their bound is a rank distance
+     * as well. Unlike the arguments of distance, the scan order is always given.
+     * @param row the array which contains the row
+     * @param offset the index of the first value of the row
+     * @param rowNorm the Euklidian norm of the row if usesNorms() returns true, otherwise 0
+     * @param candidate the values of the candidate in the order of the numeric slots
+     * @param candidateNorm the Euklidian norm of the candidate if usesNorms() returns true, otherwise 0
+     * @param order the numeric slots ordered by descending variance
+     * @param orderedCandidate the values of the candidate in that order
+     * @param bound the largest rank distance which is still of interest
+     * @return a double containing the rank distance, or Double.POSITIVE_INFINITY if it is larger than the bound
+     */
+    default double rankDistance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                                int[] order, double[] orderedCandidate, double bound){
+        return distance(row, offset, rowNorm, candidate, candidateNorm, order, orderedCandidate, bound);
+    }
+
+    /**
+     * Returns a lower bound of the rank distance of two rows which differ by the given value on a single attribute
+     * @param slot the numeric slot of the attribute
+     * @param difference the absolute difference of the two values
+     * @return a double containing the lower bound, 0 if the metric can not give one
+     */
+    default double rankAxisDistance(int slot, double difference){
+        return axisDistance(slot, difference);
+    }
+
+    /**
+     * Returns whether the metric satisfies the triangle inequality, which the vantage point tree needs for its pruning
+     * @return true if the triangle inequality holds
+     */
+    boolean isMetric();
+
+    /**
+     * Returns the parameters of the metric (e.g. the weights), two metrics of the same class with the same
+     * parameters give the same distances
+     * A snapshot stores the class and the parameters, so an index which depends on the distances is only loaded for
+     * the same metric.
+     * @return a double-Array containing the parameters, empty if the metric has none
+     */
+    default double[] getParameters(){
+        return new double[0];
+    }
+
+    /**
+     * Returns whether the distance needs the Euklidian norms of the rows (see DatasetStore.getNumericNorms())
+     * @return true if the comparator has to pass the norms
+     */
+    default boolean usesNorms(){
+        return false;
+    }
+}
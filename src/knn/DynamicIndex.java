@@ -0,0 +1,283 @@
+package knn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An index over a changing list of training datasets
+ * The datasets of the last build are kept in a base index (built by the search method of the classifier, or
+ * searched exhaustively). Inserted datasets are collected in a small delta list which is searched exhaustively and
+ * deleted datasets are only marked. When the updates exceed a tenth of the base, the base is compacted: the live
+ * datasets are copied into a private store and a new base index is built over this copy in the background, while
+ * queries and updates continue on the old base. Updates which arrive during the build are carried over.
+ *
+ * All methods must be called while holding the given lock, nearest with the read lock and the updates with the write
+ * lock. The lock also guards the store of the datasets, the background build takes it only for copying the rows.
+ */
+public class DynamicIndex implements NeighbourIndex {
+    private static final int MIN_COMPACTION_UPDATES = 1024;
+    // Heap of the queries and the live neighbours found by the base index, reused by all queries of a thread
+    private static final ThreadLocal<NeighbourHeap> HEAPS = ThreadLocal.withInitial(() -> new NeighbourHeap(0));
+    private static final ThreadLocal<Dataset[]> RANKED = ThreadLocal.withInitial(() -> new Dataset[0]);
+
+    private Function<ArrayList<Dataset>, NeighbourIndex> builder;
+    private ExecutorService executor;
+    private ReadWriteLock lock;
+
+    // Live datasets of the base ordered by their position, the base index may be built over copies of them
+    private ArrayList<Dataset> base;
+    private NeighbourIndex baseIndex;
+    private boolean baseIsCopy = false;
+    private boolean changed = false;
+    private BitSet deletedRows = new BitSet();
+    private int deletedCount = 0;
+    private ArrayList<Dataset> delta = new ArrayList<>();
+    private HashSet<Dataset> deltaSet = new HashSet<>();
+
+    private boolean compacting = false;
+    private ArrayList<Dataset> insertedWhileCompacting;
+    private BitSet deletedWhileCompacting;
+
+    /**
+     * Creates a new index over the given training datasets and builds the base index on the calling thread
+     * @param train an ArrayList of Dataset instances which should be indexed, the list must not be changed afterwards
+     * @param builder a Function which builds an index over a list of datasets, or null for an exhaustive search
+     * @param executor the ExecutorService which compacts the index in the background, or null to compact immediately
+     * @param lock the ReadWriteLock which guards the index and the store of the datasets
+     */
+    public DynamicIndex(ArrayList<Dataset> train, Function<ArrayList<Dataset>, NeighbourIndex> builder,
+                        ExecutorService executor, ReadWriteLock lock){
+        this(train, builder == null ? null : builder.apply(train), builder, executor, lock);
+    }
+
+    /**
+     * Creates a new index with an already built base index, e.g. when loading a snapshot
+     * @param train an ArrayList of Dataset instances in the same order as the base index
+     * @param baseIndex a NeighbourIndex over the training datasets, or null for an exhaustive search
+     * @param builder a Function which builds an index over a list of datasets, or null for an exhaustive search
+     * @param executor the ExecutorService which compacts the index in the background, or null to compact immediately
+     * @param lock the ReadWriteLock which guards the index and the store of the datasets
+     */
+    DynamicIndex(ArrayList<Dataset> train, NeighbourIndex baseIndex,
+                 Function<ArrayList<Dataset>, NeighbourIndex> builder, ExecutorService executor, ReadWriteLock lock){
+        this.base = train;
+        this.baseIndex = baseIndex;
+        this.builder = builder;
+        this.executor = executor;
+        this.lock = lock;
+    }
+
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        Dataset[] result = new Dataset[Math.max(0, Math.min(k, size()))];
+        return NeighbourIndex.toList(result, nearest(cmp, k, result));
+    }
+
+    @Override
+    public int nearest(DatasetEuklidianComparator cmp, int k, Dataset[] result){
+        int live = size();
+        if(k <= 0 || live == 0){
+            return 0;
+        }
+
+        // Base entries use their position (or their rank in the result of the base index) as heap index,
+        // delta entries come after all base entries, so ties are resolved like in the exhaustive search
+        NeighbourHeap heap = HEAPS.get();
+        heap.reset(Math.min(k, live));
+        Dataset[] ranked = null;
+        int rankedCount = 0;
+        if(baseIndex != null){
+            rankedCount = nearestInBase(cmp, k);
+            ranked = RANKED.get();
+            for(int i = 0; i < rankedCount; i++){
+                heap.offer(cmp.distance(ranked[i]), i);
+            }
+        }else{
+            for(int i = 0; i < base.size(); i++){
+                if(!deletedRows.get(base.get(i).getRow())){
+                    heap.offer(cmp.distance(base.get(i), heap.worstDistance()), i);
+                }
+            }
+        }
+        for(int i = 0; i < delta.size(); i++){
+            heap.offer(cmp.distance(delta.get(i), heap.worstDistance()), base.size()+i);
+        }
+
+        int count = heap.sortInPlace();
+        for(int i = 0; i < count; i++){
+            int index = heap.getSortedIndex(i);
+            if(index >= base.size()){
+                result[i] = delta.get(index-base.size());
+            }else{
+                result[i] = ranked != null ? ranked[index] : base.get(index);
+            }
+        }
+        if(ranked != null){
+            Arrays.fill(ranked, 0, rankedCount, null);
+        }
+        return count;
+    }
+
+    @Override
+    public int size(){
+        return base.size()-deletedCount+delta.size();
+    }
+
+    /**
+     * Adds a new training dataset to the index
+     * @param dataset the Dataset instance which should be added, it must be part of the same store as the others
+     */
+    public void insert(Dataset dataset){
+        changed = true;
+        delta.add(dataset);
+        deltaSet.add(dataset);
+        if(compacting){
+            insertedWhileCompacting.add(dataset);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes a training dataset from the index
+     * @param dataset the Dataset instance which should be removed, it must be part of the index
+     */
+    public void delete(Dataset dataset){
+        changed = true;
+        if(deltaSet.remove(dataset)){
+            delta.remove(dataset);
+        }else if(!deletedRows.get(dataset.getRow())){
+            deletedRows.set(dataset.getRow());
+            deletedCount++;
+        }
+        if(compacting && !insertedWhileCompacting.remove(dataset)){
+            deletedWhileCompacting.set(dataset.getRow());
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Returns if the index still only contains the datasets of its construction
+     * @return true if no dataset was inserted or deleted
+     */
+    public boolean isUnchanged(){
+        return !changed;
+    }
+
+    /**
+     * Returns the base index over the datasets of the construction
+     * @return a NeighbourIndex instance, or null if the base is searched exhaustively
+     */
+    NeighbourIndex getBaseIndex(){
+        return baseIndex;
+    }
+
+    /**
+     * Queries the base index for the k nearest datasets which are not deleted
+     * The number of requested neighbours is doubled until enough of them are not deleted
+     * @return an int containing the number of live datasets, they are written to the buffer of RANKED ordered by
+     *         ascending distance
+     */
+    private int nearestInBase(DatasetEuklidianComparator cmp, int k){
+        int limit = Math.min(base.size(), k+deletedCount);
+        int wanted = Math.min(limit, k+Math.min(deletedCount, k));
+        while(true){
+            Dataset[] found = RANKED.get();
+            if(found.length < wanted){
+                found = new Dataset[wanted];
+                RANKED.set(found);
+            }
+            int count = baseIndex.nearest(cmp, wanted, found);
+            int live = 0;
+            for(int i = 0; i < count; i++){
+                Dataset original = baseIsCopy ? base.get(found[i].getRow()) : found[i];
+                if(!deletedRows.get(original.getRow())){
+                    found[live++] = original;
+                }
+            }
+            if(live >= k || wanted >= limit){
+                Arrays.fill(found, live, count, null);
+                return live;
+            }
+            wanted = Math.min(limit, wanted*2);
+        }
+    }
+
+    /**
+     * Starts a compaction if the number of updates since the last one is large enough
+     */
+    private void compactIfNeeded(){
+        if(compacting || delta.size()+deletedCount < Math.max(MIN_COMPACTION_UPDATES, base.size()/10)){
+            return;
+        }
+
+        final ArrayList<Dataset> snapshot = new ArrayList<>();
+        for(Dataset dataset : base){
+            if(!deletedRows.get(dataset.getRow())){
+                snapshot.add(dataset);
+            }
+        }
+        snapshot.addAll(delta);
+
+        if(builder == null || snapshot.isEmpty()){
+            replaceBase(snapshot, null, false, new ArrayList<>(), new BitSet());
+            return;
+        }
+
+        compacting = true;
+        insertedWhileCompacting = new ArrayList<>();
+        deletedWhileCompacting = new BitSet();
+        if(executor == null){
+            compact(snapshot);
+        }else{
+            executor.execute(() -> compact(snapshot));
+        }
+    }
+
+    /**
+     * Builds a new base index over a copy of the snapshot and replaces the old base afterwards
+     */
+    private void compact(ArrayList<Dataset> snapshot){
+        NeighbourIndex index = null;
+        ArrayList<Dataset> copies = new ArrayList<>();
+        try {
+            lock.readLock().lock();
+            try {
+                DatasetStore copy = snapshot.get(0).getStore().copyRows(snapshot);
+                for(int i = 0; i < copy.size(); i++){
+                    copies.add(copy.getDataset(i));
+                }
+            }finally{
+                lock.readLock().unlock();
+            }
+            index = builder.apply(copies);
+        }finally{
+            lock.writeLock().lock();
+            try {
+                if(index != null){
+                    replaceBase(snapshot, index, true, insertedWhileCompacting, deletedWhileCompacting);
+                }
+                compacting = false;
+                insertedWhileCompacting = null;
+                deletedWhileCompacting = null;
+            }finally{
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void replaceBase(ArrayList<Dataset> snapshot, NeighbourIndex index, boolean isCopy,
+                             ArrayList<Dataset> inserted, BitSet deleted){
+        base = snapshot;
+        baseIndex = index;
+        baseIsCopy = isCopy;
+        deletedRows = deleted;
+        deletedCount = deleted.cardinality();
+        delta = inserted;
+        deltaSet = new HashSet<>(inserted);
+    }
+}
@@ -0,0 +1,109 @@
+package knn;
+
+/**
+ * The Euklidian distance of the numeric attributes, the squared differences are summed up by a DistanceKernel and
+ * the root is only taken once per row
+ * The rank distance is the squared distance, so the searches which only need the order of the neighbours never take
+ * the root.
+ * Without a bound (and for less than 8 attributes) every row is summed up by the kernel, so a vectorized kernel is
+ * used for the first neighbours and for full scans. With a bound the squared differences are summed up in the order
+ * of descending variance instead, which abandons far rows after a few attributes but can't use the kernel. Every row
+ * is summed up only once either way, the price is that both sums may differ in the last bits: the same row can get a
+ * distance one ulp apart depending on the bound, which only changes the order of rows whose distances are equal.
+ */
+public class EuclideanMetric implements DistanceMetric {
+    private DistanceKernel kernel;
+
+    /**
+     * Creates a new instance of the Euklidian metric which uses the scalar kernel
+     */
+    public EuclideanMetric(){
+        this(new ScalarDistanceKernel());
+    }
+
+    /**
+     * Creates a new instance of the Euklidian metric which uses the given kernel
+     * @param kernel the DistanceKernel which calculates the squared distance of the numeric attributes
+     */
+    public EuclideanMetric(DistanceKernel kernel){
+        this.kernel = kernel;
+    }
+
+    /**
+     * Returns the kernel which calculates the squared distance
+     * @return a DistanceKernel instance
+     */
+    public DistanceKernel getKernel(){
+        return kernel;
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS){
+            // The ordered sum of a near row is its distance as well, so no row is summed up twice
+            double sum = orderedSquaredDistance(row, offset, order, orderedCandidate,
+                    bound*bound*(1+EARLY_ABANDON_SLACK));
+            double dist = Math.sqrt(sum);
+            return dist > bound ? Double.POSITIVE_INFINITY : dist;
+        }
+        double dist = Math.sqrt(kernel.squaredDistance(row, offset, candidate, 0, candidate.length));
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    @Override
+    public double rankDistance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                               int[] order, double[] orderedCandidate, double bound){
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS){
+            return orderedSquaredDistance(row, offset, order, orderedCandidate, bound);
+        }
+        double sum = kernel.squaredDistance(row, offset, candidate, 0, candidate.length);
+        return sum > bound ? Double.POSITIVE_INFINITY : sum;
+    }
+
+    /**
+     * Sums up the squared differences in the order of descending variance and stops as soon as the sum exceeds the
+     * limit, so far rows are abandoned after a few attributes without taking the root
+     * @return a double containing the squared distance, or Double.POSITIVE_INFINITY if it is larger than the limit
+     */
+    private static double orderedSquaredDistance(double[] row, int offset, int[] order, double[] values, double limit){
+        double sum = 0.0;
+        int i = 0;
+        for(; i+8 <= order.length; i += 8){
+            double d0 = row[offset+order[i]]-values[i];
+            double d1 = row[offset+order[i+1]]-values[i+1];
+            double d2 = row[offset+order[i+2]]-values[i+2];
+            double d3 = row[offset+order[i+3]]-values[i+3];
+            double d4 = row[offset+order[i+4]]-values[i+4];
+            double d5 = row[offset+order[i+5]]-values[i+5];
+            double d6 = row[offset+order[i+6]]-values[i+6];
+            double d7 = row[offset+order[i+7]]-values[i+7];
+            sum += (d0*d0+d1*d1)+(d2*d2+d3*d3)+((d4*d4+d5*d5)+(d6*d6+d7*d7));
+            if(sum > limit){
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        for(; i < order.length; i++){
+            double diff = row[offset+order[i]]-values[i];
+            sum += diff*diff;
+        }
+        return sum > limit ? Double.POSITIVE_INFINITY : sum;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        return difference;
+    }
+
+    @Override
+    public double rankAxisDistance(int slot, double difference){
+        // The square of a single difference is one of the non-negative terms of the squared distance, so it is
+        // never larger than the rank distance of the row
+        return difference*difference;
+    }
+
+    @Override
+    public boolean isMetric(){
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package knn;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts recorded values (e.g. durations in nanoseconds) in logarithmic buckets
+ * Every power of two is split into 8 buckets, so a percentile is at most 12.5% larger than the real value.
+ * Recording is thread-safe and allocates nothing, so it can be used on the path of every query.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // The values below 8 have a bucket each, the largest long value ends in the last bucket of bit 62
+    private static final int BUCKETS = (62-SUB_BUCKET_BITS+2)*SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a new empty histogram
+     */
+    public Histogram(){
+    }
+
+    /**
+     * Adds a value to the histogram, negative values are counted as 0
+     * @param value a long representing the value
+     */
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while(value > current && !max.compareAndSet(current, value)){
+            current = max.get();
+        }
+    }
+
+    /**
+     * Removes all recorded values
+     * Values which are recorded at the same time may be counted partially.
+     */
+    public void reset(){
+        for(int i = 0; i < BUCKETS; i++){
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns a copy of the recorded values
+     * @return a Snapshot instance which is not changed by values recorded afterwards
+     */
+    public Snapshot snapshot(){
+        long[] copy = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++){
+            copy[i] = buckets.get(i);
+        }
+        return new Snapshot(copy, count.get(), sum.get(), max.get());
+    }
+
+    /**
+     * Returns the bucket of a value which is not negative
+     */
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int)value;
+        }
+        int bit = 63-Long.numberOfLeadingZeros(value);
+        int sub = (int)(value >>> (bit-SUB_BUCKET_BITS)) & (SUB_BUCKETS-1);
+        return (bit-SUB_BUCKET_BITS+1)*SUB_BUCKETS+sub;
+    }
+
+    /**
+     * Returns the largest value which is counted in a bucket
+     */
+    private static long upperBoundOf(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int shift = bucket/SUB_BUCKETS-1;
+        long lower = (long)(SUB_BUCKETS+bucket%SUB_BUCKETS) << shift;
+        return lower+(1L << shift)-1;
+    }
+
+    /**
+     * The values of a histogram at one point in time
+     * The getters are the attributes of the histogram in JMX.
+     */
+    public static class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] buckets, long count, long sum, long max){
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values
+         * @return a long containing the number of values
+         */
+        public long getCount(){
+            return count;
+        }
+
+        /**
+         * Returns the sum of all recorded values
+         * @return a long containing the sum
+         */
+        public long getSum(){
+            return sum;
+        }
+
+        /**
+         * Returns the mean of all recorded values
+         * @return a double containing the mean, or 0 if there are no values
+         */
+        public double getMean(){
+            return count == 0 ? 0.0 : (double)sum/count;
+        }
+
+        /**
+         * Returns the largest recorded value
+         * @return a long containing the largest value, or 0 if there are no values
+         */
+        public long getMax(){
+            return max;
+        }
+
+        /**
+         * Returns the median of the recorded values
+         * @return a long containing the upper bound of the bucket of the median
+         */
+        public long getMedian(){
+            return getPercentile(50);
+        }
+
+        /**
+         * Returns the 90th percentile of the recorded values
+         * @return a long containing the upper bound of the bucket of the percentile
+         */
+        public long getP90(){
+            return getPercentile(90);
+        }
+
+        /**
+         * Returns the 99th percentile of the recorded values
+         * @return a long containing the upper bound of the bucket of the percentile
+         */
+        public long getP99(){
+            return getPercentile(99);
+        }
+
+        /**
+         * Returns a percentile of the recorded values
+         * @param percent a double between 0 and 100 representing the percentile
+         * @return a long containing the upper bound of the bucket which contains the percentile (at most the
+         *         largest value), or 0 if there are no values
+         */
+        public long getPercentile(double percent){
+            // The counts of the buckets may be a little ahead of the count if values were recorded meanwhile
+            long total = 0;
+            for(long bucket : buckets){
+                total += bucket;
+            }
+            if(total == 0){
+                return 0;
+            }
+            long rank = Math.max(1, (long)Math.ceil(total*Math.min(Math.max(percent, 0.0), 100.0)/100.0));
+            long seen = 0;
+            for(int i = 0; i < buckets.length; i++){
+                seen += buckets[i];
+                if(seen >= rank){
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString(){
+            return "count="+count+", mean="+String.format("%.1f", getMean())+", median="+getMedian()
+                    +", p90="+getP90()+", p99="+getP99()+", max="+max;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An approximate index over a list of training datasets (Hierarchical Navigable Small World graph)
+ * Every dataset is a node which is linked to its nearest nodes on layer 0 and on a random number of sparser upper
+ * layers. A query descends greedily through the upper layers and does a best-first search on layer 0 which keeps
+ * the efSearch nearest nodes found so far. The result is usually, but not always, the same as the exact search:
+ * larger values of M, efConstruction and efSearch increase the recall and the time.
+ */
+public class HnswIndex implements NeighbourIndex {
+    private ArrayList<Dataset> train;
+    private DistanceMetric metric;
+    private int m;
+    private int maxM0;
+    private int efConstruction;
+    private int efSearch;
+
+    private int[] levels;
+    // Layer 0 links of node i start at i*(maxM0+1), the first value is the number of links
+    private int[] links0;
+    // Upper layer links of node i, layer l starts at (l-1)*(m+1), null for nodes which only exist on layer 0
+    private int[][] upperLinks;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private ThreadLocal<VisitedMarks> visited = new ThreadLocal<>();
+
+    /**
+     * Creates a new graph over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be indexed, the list must not be changed afterwards
+     * @param metric the DistanceMetric which calculates the distance of the numeric attributes while building
+     * @param m the number of links of every node on the upper layers (layer 0 has 2*m links)
+     * @param efConstruction the number of candidates which are searched for the links of a new node
+     * @param efSearch the number of candidates which are searched for a query (at least k)
+     */
+    public HnswIndex(ArrayList<Dataset> train, DistanceMetric metric, int m, int efConstruction, int efSearch){
+        this.train = train;
+        this.metric = metric;
+        this.m = Math.max(m, 2);
+        this.maxM0 = 2*this.m;
+        this.efConstruction = Math.max(efConstruction, this.m);
+        this.efSearch = Math.max(efSearch, 1);
+
+        int n = train.size();
+        this.levels = new int[n];
+        this.links0 = new int[n*(maxM0+1)];
+        this.upperLinks = new int[n][];
+
+        // The level of a node is exponentially distributed, the seed only depends on the size like in the VpTree
+        Random random = new Random(n);
+        double levelFactor = 1.0/Math.log(this.m);
+        for(int i = 0; i < n; i++){
+            levels[i] = (int)(-Math.log(1.0-random.nextDouble())*levelFactor);
+            if(levels[i] > 0){
+                upperLinks[i] = new int[levels[i]*(this.m+1)];
+            }
+            insert(i);
+        }
+    }
+
+    /**
+     * Restores a graph which was written by writeSnapshot over the same training datasets
+     * @param train an ArrayList of Dataset instances in the same order as when the graph was built
+     * @param in a ByteBuffer positioned at the start of the graph
+     */
+    HnswIndex(ArrayList<Dataset> train, ByteBuffer in){
+        this.train = train;
+        this.m = in.getInt();
+        this.maxM0 = 2*m;
+        this.efConstruction = in.getInt();
+        this.efSearch = in.getInt();
+        this.entryPoint = in.getInt();
+        this.maxLevel = in.getInt();
+        this.levels = SnapshotIO.readInts(in);
+        this.links0 = SnapshotIO.readInts(in);
+        this.upperLinks = new int[levels.length][];
+        for(int i = 0; i < levels.length; i++){
+            if(levels[i] > 0){
+                upperLinks[i] = SnapshotIO.readInts(in);
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        ArrayList<Dataset> result = new ArrayList<>();
+        if(k <= 0 || entryPoint < 0){
+            return result;
+        }
+
+        int[] entries = {entryPoint};
+        double[] entryDistances = {cmp.distance(train.get(entryPoint))};
+        for(int layer = maxLevel; layer > 0; layer--){
+            double[] distances = new double[1];
+            entries = searchLayer(cmp, entries, entryDistances, 1, layer, distances);
+            entryDistances = distances;
+        }
+        int ef = Math.max(efSearch, k);
+        int[] found = searchLayer(cmp, entries, entryDistances, ef, 0, new double[ef]);
+
+        // Datasets with the same distance are ordered by their position, like in the exact search
+        for(int i = 0; i < Math.min(k, found.length); i++){
+            result.add(train.get(found[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public int size(){
+        return train.size();
+    }
+
+    /**
+     * Sets the number of candidates which are searched for a query, this doesn't change the graph
+     * @param efSearch an int representing the number of candidates (at least k are searched)
+     */
+    public void setEfSearch(int efSearch){
+        this.efSearch = Math.max(efSearch, 1);
+    }
+
+    /**
+     * Writes the graph to a snapshot
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(efSearch);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        SnapshotIO.writeInts(out, levels, levels.length);
+        SnapshotIO.writeInts(out, links0, links0.length);
+        for(int i = 0; i < levels.length; i++){
+            if(levels[i] > 0){
+                SnapshotIO.writeInts(out, upperLinks[i], upperLinks[i].length);
+            }
+        }
+    }
+
+    /**
+     * Links a new node to its nearest nodes on all of its layers
+     */
+    private void insert(int node){
+        int level = levels[node];
+        if(entryPoint < 0){
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(train.get(node), metric);
+        int[] entries = {entryPoint};
+        double[] entryDistances = {cmp.distance(train.get(entryPoint))};
+        for(int layer = maxLevel; layer > level; layer--){
+            double[] distances = new double[1];
+            entries = searchLayer(cmp, entries, entryDistances, 1, layer, distances);
+            entryDistances = distances;
+        }
+
+        for(int layer = Math.min(level, maxLevel); layer >= 0; layer--){
+            double[] distances = new double[efConstruction];
+            int[] candidates = searchLayer(cmp, entries, entryDistances, efConstruction, layer, distances);
+            int[] neighbours = selectNeighbours(candidates, distances, m);
+            for(int neighbour : neighbours){
+                addLink(node, neighbour, layer);
+                addLink(neighbour, node, layer);
+            }
+            entries = candidates;
+            entryDistances = Arrays.copyOf(distances, candidates.length);
+        }
+
+        if(level > maxLevel){
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Finds the ef nearest nodes of a layer by a best-first search which starts at the given entry nodes
+     * @param cmp the comparator which measures the distances to the query
+     * @param entries the indices of the entry nodes
+     * @param entryDistances the distances of the entry nodes
+     * @param ef the number of nodes which are kept
+     * @param layer the layer which is searched
+     * @param sortedDistances a double-array with at least ef entries which receives the distances of the result
+     * @return an int-array containing the indices of the nearest nodes, the nearest one first
+     */
+    private int[] searchLayer(DatasetEuklidianComparator cmp, int[] entries, double[] entryDistances, int ef, int layer,
+                              double[] sortedDistances){
+        VisitedMarks marks = visitedMarks();
+        CandidateQueue candidates = new CandidateQueue();
+        NeighbourHeap nearest = new NeighbourHeap(ef);
+        for(int i = 0; i < entries.length; i++){
+            marks.visit(entries[i]);
+            candidates.add(entryDistances[i], entries[i]);
+            nearest.offer(entryDistances[i], entries[i]);
+        }
+
+        while(!candidates.isEmpty()){
+            // Stop as soon as the nearest open candidate is farther than every node in the result
+            if(candidates.peekDistance() > nearest.worstDistance()){
+                break;
+            }
+            int current = candidates.poll();
+            int[] links = layer == 0 ? links0 : upperLinks[current];
+            int offset = layer == 0 ? current*(maxM0+1) : (layer-1)*(m+1);
+            for(int i = 1; i <= links[offset]; i++){
+                int neighbour = links[offset+i];
+                if(!marks.visit(neighbour)){
+                    continue;
+                }
+                double dist = cmp.distance(train.get(neighbour), nearest.worstDistance());
+                if(dist <= nearest.worstDistance()){
+                    candidates.add(dist, neighbour);
+                    nearest.offer(dist, neighbour);
+                }
+            }
+        }
+        return nearest.drainSorted(sortedDistances);
+    }
+
+    /**
+     * Selects up to max neighbours from candidates ordered by ascending distance
+     * A candidate is preferred if it is nearer to the new node than to all neighbours selected before, so the links
+     * point in different directions. The remaining slots are filled with the nearest skipped candidates.
+     */
+    private int[] selectNeighbours(int[] candidates, double[] distances, int max){
+        if(candidates.length <= max){
+            return candidates;
+        }
+        int[] selected = new int[max];
+        int count = 0;
+        boolean[] skipped = new boolean[candidates.length];
+        for(int c = 0; c < candidates.length && count < max; c++){
+            DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(train.get(candidates[c]), metric);
+            boolean diverse = true;
+            for(int s = 0; s < count; s++){
+                if(cmp.distance(train.get(selected[s]), distances[c]) < distances[c]){
+                    diverse = false;
+                    break;
+                }
+            }
+            if(diverse){
+                selected[count++] = candidates[c];
+            }else{
+                skipped[c] = true;
+            }
+        }
+        for(int c = 0; c < candidates.length && count < max; c++){
+            if(skipped[c]){
+                selected[count++] = candidates[c];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Adds a link from one node to another, if the node has too many links afterwards the most redundant is removed
+     */
+    private void addLink(int from, int to, int layer){
+        int[] links = layer == 0 ? links0 : upperLinks[from];
+        int offset = layer == 0 ? from*(maxM0+1) : (layer-1)*(m+1);
+        int max = layer == 0 ? maxM0 : m;
+        int count = links[offset];
+        if(count < max){
+            links[offset+count+1] = to;
+            links[offset]++;
+            return;
+        }
+
+        // Select the best links out of the old links and the new one
+        DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(train.get(from), metric);
+        NeighbourHeap heap = new NeighbourHeap(count+1);
+        for(int i = 1; i <= count; i++){
+            heap.offer(cmp.distance(train.get(links[offset+i])), links[offset+i]);
+        }
+        heap.offer(cmp.distance(train.get(to)), to);
+        double[] distances = new double[count+1];
+        int[] candidates = heap.drainSorted(distances);
+        int[] selected = selectNeighbours(candidates, distances, max);
+        links[offset] = selected.length;
+        System.arraycopy(selected, 0, links, offset+1, selected.length);
+    }
+
+    private VisitedMarks visitedMarks(){
+        VisitedMarks marks = visited.get();
+        if(marks == null || marks.marks.length < levels.length){
+            marks = new VisitedMarks(levels.length);
+            visited.set(marks);
+        }
+        marks.next();
+        return marks;
+    }
+
+    /**
+     * Marks the nodes which are already visited by a search, the marks of one thread are reused for all its searches
+     */
+    private static class VisitedMarks {
+        private int[] marks;
+        private int generation = 0;
+
+        VisitedMarks(int size){
+            marks = new int[size];
+        }
+
+        void next(){
+            generation++;
+            if(generation == Integer.MAX_VALUE){
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Returns true if the node was not visited by the current search yet and marks it
+         */
+        boolean visit(int node){
+            if(marks[node] == generation){
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
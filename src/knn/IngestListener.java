@@ -0,0 +1,17 @@
+package knn;
+
+/**
+ * Receives the rows of a data file while it is still being read
+ * The listener is always called on the reading thread, one chunk after another in file order
+ */
+public interface IngestListener {
+
+    /**
+     * Called after a chunk of rows was added to the store
+     * @param store the DatasetStore which contains the rows
+     * @param fromRow the index of the first new row (inclusive)
+     * @param toRow the index after the last new row (exclusive)
+     * @param statistics the ColumnStatistics of the new rows, calculated by the thread which parsed them
+     */
+    void rowsAdded(DatasetStore store, int fromRow, int toRow, ColumnStatistics statistics);
+}
@@ -0,0 +1,219 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * A k-d tree over the numeric attributes of a list of training datasets
+ * The tree is built once per training list and answers k nearest neighbour queries with branch-and-bound pruning.
+ * Text attributes are not used for splitting, but their Levenshtein distance is still part of the real distance,
+ * so the lower bound of the metric for the difference on a single numeric axis is always valid for the pruning.
+ */
+public class KdTree implements NeighbourIndex {
+    private static final int LEAF_SIZE = 8;
+    // Heap of the searches, reused by all queries of a thread
+    private static final ThreadLocal<NeighbourHeap> HEAPS = ThreadLocal.withInitial(() -> new NeighbourHeap(0));
+
+    private ArrayList<Dataset> train;
+    private int dimensions;
+    private double[] points;
+    private int[] order;
+    private int[] splitAxes;
+
+    /**
+     * Creates a new k-d tree over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be indexed, the list must not be changed afterwards
+     */
+    public KdTree(ArrayList<Dataset> train){
+        this.train = train;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+
+        this.points = copyPoints(train, dimensions);
+
+        this.order = new int[train.size()];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        this.splitAxes = new int[train.size()];
+        build(0, order.length);
+    }
+
+    /**
+     * Restores a k-d tree which was written by writeSnapshot over the same training datasets
+     * @param train an ArrayList of Dataset instances in the same order as when the tree was built
+     * @param in a ByteBuffer positioned at the start of the tree
+     */
+    KdTree(ArrayList<Dataset> train, ByteBuffer in){
+        this.train = train;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+        this.points = copyPoints(train, dimensions);
+        this.order = SnapshotIO.readInts(in);
+        this.splitAxes = SnapshotIO.readInts(in);
+    }
+
+    /**
+     * Returns the k nearest neighbours of the candidate, ordered by ascending distance
+     * Datasets with the same distance are ordered by their position in the training list, which is the same order
+     * a stable sort of the training list would return
+     * @param candidate the dataset whose neighbours should be found
+     * @param k the number of neighbours
+     * @return an ArrayList of Dataset instances containing at most k neighbours
+     */
+    public ArrayList<Dataset> nearest(Dataset candidate, int k){
+        return nearest(new DatasetEuklidianComparator(candidate), k);
+    }
+
+    /**
+     * Returns the k nearest neighbours of the candidate of a comparator, ordered by ascending distance
+     * @param cmp the comparator which measures the distances to the candidate
+     * @param k the number of neighbours
+     * @return an ArrayList of Dataset instances containing at most k neighbours
+     */
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        Dataset[] result = new Dataset[Math.max(0, Math.min(k, train.size()))];
+        return NeighbourIndex.toList(result, nearest(cmp, k, result));
+    }
+
+    @Override
+    public int nearest(DatasetEuklidianComparator cmp, int k, Dataset[] result){
+        double[] query = cmp.getCandidateNumeric();
+        if(k <= 0 || train.isEmpty() || query.length != dimensions){
+            return 0;
+        }
+
+        NeighbourHeap heap = HEAPS.get();
+        heap.reset(Math.min(k, train.size()));
+        search(cmp, query, heap, 0, order.length);
+
+        int count = heap.sortInPlace();
+        for(int i = 0; i < count; i++){
+            result[i] = train.get(heap.getSortedIndex(i));
+        }
+        return count;
+    }
+
+    @Override
+    public int size(){
+        return train.size();
+    }
+
+    /**
+     * Writes the structure of the tree to a snapshot, the coordinates are taken from the store again when loading
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        SnapshotIO.writeInts(out, order, order.length);
+        SnapshotIO.writeInts(out, splitAxes, splitAxes.length);
+    }
+
+    /**
+     * Copies all coordinates in training list order into one flat array, so neighbouring nodes are close in memory
+     */
+    private static double[] copyPoints(ArrayList<Dataset> train, int dimensions){
+        double[] points = new double[train.size()*dimensions];
+        for(int i = 0; i < train.size(); i++){
+            Dataset d = train.get(i);
+            System.arraycopy(d.getStore().getNumericBlock(), d.getRow()*dimensions, points, i*dimensions, dimensions);
+        }
+        return points;
+    }
+
+    /**
+     * Recursively splits the given range of the order array at the median of the axis with the largest spread
+     */
+    private void build(int from, int to){
+        if(to-from <= LEAF_SIZE || dimensions == 0){
+            return;
+        }
+
+        // Choose the axis with the largest spread in this range
+        int axis = 0;
+        double bestSpread = -1.0;
+        for(int a = 0; a < dimensions; a++){
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for(int i = from; i < to; i++){
+                double v = points[order[i]*dimensions+a];
+                if(v < min) min = v;
+                if(v > max) max = v;
+            }
+            if(max-min > bestSpread){
+                bestSpread = max-min;
+                axis = a;
+            }
+        }
+
+        int median = (from+to) >>> 1;
+        select(from, to-1, median, axis);
+        splitAxes[median] = axis;
+
+        build(from, median);
+        build(median+1, to);
+    }
+
+    /**
+     * Partially sorts the given range of the order array (quickselect), so the median is at its final position
+     */
+    private void select(int left, int right, int nth, int axis){
+        while(right > left){
+            double pivot = points[order[(left+right) >>> 1]*dimensions+axis];
+            int i = left, j = right;
+            while(i <= j){
+                while(points[order[i]*dimensions+axis] < pivot) i++;
+                while(points[order[j]*dimensions+axis] > pivot) j--;
+                if(i <= j){
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if(nth <= j){
+                right = j;
+            }else if(nth >= i){
+                left = i;
+            }else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the given range of the tree and visits the far side of a split only if it can contain a closer dataset
+     */
+    private void search(DatasetEuklidianComparator cmp, double[] query, NeighbourHeap heap, int from, int to){
+        cmp.countVisitedNode();
+        if(to-from <= LEAF_SIZE || dimensions == 0){
+            for(int i = from; i < to; i++){
+                heap.offer(cmp.rankDistance(train.get(order[i]), heap.worstDistance()), order[i]);
+            }
+            return;
+        }
+
+        int median = (from+to) >>> 1;
+        int axis = splitAxes[median];
+        double diff = query[axis] - points[order[median]*dimensions+axis];
+
+        if(diff < 0){
+            search(cmp, query, heap, from, median);
+            heap.offer(cmp.rankDistance(train.get(order[median]), heap.worstDistance()), order[median]);
+            if(cmp.rankAxisDistance(axis, -diff) <= heap.worstDistance()){
+                search(cmp, query, heap, median+1, to);
+            }else{
+                cmp.countPrunedNode();
+            }
+        }else{
+            search(cmp, query, heap, median+1, to);
+            heap.offer(cmp.rankDistance(train.get(order[median]), heap.worstDistance()), order[median]);
+            if(cmp.rankAxisDistance(axis, diff) <= heap.worstDistance()){
+                search(cmp, query, heap, from, median);
+            }else{
+                cmp.countPrunedNode();
+            }
+        }
+    }
+}
@@ -0,0 +1,1519 @@
+package knn;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.time.Duration;
+import java.time.temporal.TemporalUnit;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * A basic framework for classifying any set of data
+ */
+public class KnnClassifier {
+    // Datasets with a numeric value farther than this number of standard deviations from the mean are outliers
+    private static final double OUTLIER_DEVIATIONS = 2.0;
+    // Number of votes per category, reused by every vote of a thread and cleared afterwards
+    private static final ThreadLocal<int[]> VOTES = ThreadLocal.withInitial(() -> new int[0]);
+
+    private DataReader dataReader = new DataReader();
+    private ConfusionMatrix confusionMatrix = new ConfusionMatrix();
+    private ArrayList<OutputCategory> categories = new ArrayList<>();
+    // Index of the category of every label code of the store, -1 for labels without a category
+    private int[] labelCategories = new int[0];
+
+    private int k = 10;
+    private int effectiveOutputColumnCount = -1;
+    private boolean removeOutliers = false;
+    private boolean randomizeOrder = true;
+    private boolean parallelIngest = false;
+    private Random random = new Random();
+    private ColumnStatistics statistics = new ColumnStatistics();
+    private SearchMethod searchMethod = SearchMethod.EXHAUSTIVE;
+    private int hnswM = 16;
+    private int hnswEfConstruction = 100;
+    private int hnswEfSearch = 64;
+    private int forestTrees = 8;
+    private int forestLeafSize = 32;
+    private int forestSearchCandidates = 256;
+    private Quantization quantization = Quantization.NONE;
+    private DistanceMetric distanceMetric = new EuclideanMetric();
+    private ExecutorService executor = ForkJoinPool.commonPool();
+    private int chunkSize = 64;
+    private BlockedSearch batchSearch;
+    private boolean cacheDistances = false;
+    private PairwiseDistanceCache distanceCache;
+    private ArrayList<Dataset> batchTrain;
+    private DynamicIndex scoringIndex;
+    private DatasetStore store;
+    // Guards the store, the categories and the index of classify against concurrent inserts and deletes
+    private final ReentrantReadWriteLock updateLock = new ReentrantReadWriteLock();
+    // Comparator, heap and neighbour buffers of the queries of a thread, so classifying allocates nothing
+    private final ThreadLocal<QueryState> queryStates = new ThreadLocal<>();
+    private final ClassifierMetrics metrics = new ClassifierMetrics();
+
+    /**
+     * Creates a new kNN-Classifier instance
+     */
+    public KnnClassifier(){
+    }
+
+    /**
+     * Sets the number of packs
+     * @param k an int representing the number of packs
+     */
+    public void setK(int k){
+        if(k > 1) {
+            this.k = k;
+        }
+    }
+
+    /**
+     * Reads the datasets from a file, removes outliers from this dataset if it wasn't set otherwise and
+     * categorizes the dataset list into multiple categories defined by the output column
+     * The statistics are gathered while the file is read, so removing the outliers only needs the categorizing pass.
+     * Removed outliers stay part of the statistics and of the store, they are only left out of the categories.
+     * @param filename a String representing the filename which contains the data
+     */
+    public void readData(String filename){
+        if(dataReader.getOutputColumnCount() > 0) {
+            // Classify, insert and delete must not use the store, the categories or the index while they are replaced
+            updateLock.writeLock().lock();
+            try {
+                replaceData(filename);
+            }finally{
+                updateLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Replaces the datasets, the categories, the statistics and the index by the content of a data file
+     * @param filename a String representing the filename which contains the data
+     */
+    private void replaceData(String filename){
+        updateEffectiveOutputColumnCount();
+
+        // Statistics and categories are collected while the file is still being read,
+        // unless outliers have to be removed before categorizing
+        categories = new ArrayList<>();
+        labelCategories = new int[0];
+        statistics = new ColumnStatistics();
+        final boolean categorizeWhileReading = !removeOutliers;
+        // The executor is resolved here, so a later setExecutor is used by the next file as well
+        dataReader.setExecutor(parallelIngest ? executor : null);
+
+        System.out.print(categorizeWhileReading ? "Reading and categorizing data..." : "Reading data...");
+        // The listener runs on the reading thread, so its time is subtracted from the time of parsing
+        final AtomicLong categorizeNanos = new AtomicLong();
+        long startNanos = System.nanoTime();
+        ArrayList<Dataset> datasets = this.dataReader.readData(filename, (store, fromRow, toRow, partial) -> {
+            statistics.merge(partial);
+            if(categorizeWhileReading){
+                long chunkStart = System.nanoTime();
+                for(int row = fromRow; row < toRow; row++){
+                    categorize(store.getDataset(row));
+                }
+                categorizeNanos.addAndGet(System.nanoTime()-chunkStart);
+            }
+        });
+        long parseNanos = System.nanoTime()-startNanos-categorizeNanos.get();
+        System.out.println("Done!");
+        store = datasets.isEmpty() ? null : datasets.get(0).getStore();
+
+        if(removeOutliers && store != null){
+            long categorizeStart = System.nanoTime();
+            categorizeWithoutOutliers(store);
+            categorizeNanos.addAndGet(System.nanoTime()-categorizeStart);
+        }
+        metrics.recordRead(parseNanos, categorizeNanos.get(), datasets.size());
+        if(randomizeOrder){
+            // Shuffling every category on its own gives the same packs as shuffling the whole list before
+            for(OutputCategory cat : categories){
+                cat.shuffle(random);
+            }
+        }
+
+        updateOutputCategories();
+        batchSearch = null;
+        batchTrain = null;
+        scoringIndex = null;
+        distanceCache = null;
+    }
+
+    /**
+     * Adds a new training dataset without reading the data file again
+     * The values are handled like a line of the data file (ignored columns are removed, a numeric output value is
+     * converted to an integer). The dataset is added to its category and to the index of classify, which absorbs
+     * the update and is compacted in the background from time to time (see DynamicIndex).
+     * Inserts and deletes must not be used while doKFoldCross or compareWithExactSearch is running on another thread.
+     * @param values a String-Array containing the values of all columns of the data file
+     * @return the new Dataset instance, or null if the values do not match the attribute types of the datasets
+     */
+    public Dataset insert(String[] values){
+        updateLock.writeLock().lock();
+        try {
+            if(store == null){
+                updateEffectiveOutputColumnCount();
+                store = new DatasetStore();
+            }
+            Dataset dataset = store.addRow(dataReader.prepareColumns(values.clone()), dataReader.getOutputColumnCount());
+            if(dataset == null){
+                return null;
+            }
+
+            int categoryCount = categories.size();
+            categorize(dataset);
+            if(categories.size() != categoryCount){
+                updateOutputCategories();
+            }
+            statistics.add(store, dataset.getRow(), dataset.getRow()+1);
+            if(scoringIndex != null){
+                scoringIndex.insert(dataset);
+            }
+            batchSearch = null;
+            batchTrain = null;
+            distanceCache = null;
+            return dataset;
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a training dataset, e.g. one which was returned by insert
+     * The statistics still contain the values of the removed dataset.
+     * @param dataset the Dataset instance which should be removed
+     * @return true if the dataset was a training dataset
+     */
+    public boolean delete(Dataset dataset){
+        updateLock.writeLock().lock();
+        try {
+            for(OutputCategory cat : categories){
+                if(cat.removeDataset(dataset)){
+                    if(scoringIndex != null){
+                        scoringIndex.delete(dataset);
+                    }
+                    batchSearch = null;
+                    batchTrain = null;
+                    return true;
+                }
+            }
+            return false;
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Calculates the number of the output column without the ignored columns
+     */
+    private void updateEffectiveOutputColumnCount(){
+        effectiveOutputColumnCount = dataReader.getOutputColumnCount();
+        for(int ignoredColumn : dataReader.getIgnoredColumns()){
+            if(ignoredColumn < dataReader.getOutputColumnCount()){
+                effectiveOutputColumnCount--;
+            }
+        }
+    }
+
+    /**
+     * Sets the values of all categories as the categories of the confusion matrix
+     */
+    private void updateOutputCategories(){
+        ArrayList<Attribute> outputCategories = new ArrayList<>();
+        for(OutputCategory cat : categories){
+            outputCategories.add(cat.getCategoryValue());
+        }
+        confusionMatrix.setOutputCategories(outputCategories);
+    }
+
+    /**
+     * Saves the read datasets, the categories, the statistics and the index over all datasets (if it is already
+     * built by classify) to a binary snapshot, which can be loaded much faster than reading the data file again
+     * @param filename a String representing the filename of the snapshot
+     * @throws IOException if the snapshot can not be written
+     */
+    public void saveSnapshot(String filename) throws IOException {
+        System.out.print("Saving snapshot...");
+        updateLock.readLock().lock();
+        try(DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))){
+            SnapshotIO.writeHeader(out);
+            // insert handles its values like the lines of the data file, so the format of the file is stored as well
+            dataReader.writeSnapshot(out);
+            out.writeInt(effectiveOutputColumnCount);
+
+            DatasetStore store = this.store == null ? new DatasetStore() : this.store;
+            store.writeSnapshot(out);
+
+            out.writeInt(categories.size());
+            for(OutputCategory cat : categories){
+                out.writeInt(store.findLabelCode(cat.getCategoryValue().getValue()));
+                int[] rows = cat.getRows();
+                SnapshotIO.writeInts(out, rows, rows.length);
+            }
+
+            statistics.writeSnapshot(out);
+
+            // The thresholds of a VP_TREE and the links of HNSW depend on the metric, so it is stored with the index
+            double[] metricParameters = distanceMetric.getParameters();
+            SnapshotIO.writeString(out, distanceMetric.getClass().getName());
+            SnapshotIO.writeDoubles(out, metricParameters, metricParameters.length);
+
+            // The index is only valid for the order of getAllDatasets as long as nothing was inserted or deleted
+            NeighbourIndex index = scoringIndex != null && scoringIndex.isUnchanged() ? scoringIndex.getBaseIndex() : null;
+            if(index instanceof KdTree){
+                out.writeInt(SearchMethod.KD_TREE.ordinal());
+                ((KdTree)index).writeSnapshot(out);
+            }else if(index instanceof VpTree){
+                out.writeInt(SearchMethod.VP_TREE.ordinal());
+                ((VpTree)index).writeSnapshot(out);
+            }else if(index instanceof HnswIndex){
+                out.writeInt(SearchMethod.HNSW.ordinal());
+                ((HnswIndex)index).writeSnapshot(out);
+            }else if(index instanceof RpForest){
+                out.writeInt(SearchMethod.RP_FOREST.ordinal());
+                ((RpForest)index).writeSnapshot(out);
+            }else{
+                out.writeInt(SearchMethod.EXHAUSTIVE.ordinal());
+            }
+        }finally{
+            updateLock.readLock().unlock();
+        }
+        System.out.println("Done!");
+    }
+
+    /**
+     * Loads a snapshot which was saved by saveSnapshot instead of reading a data file
+     * The file is mapped into memory and the columns are copied without parsing. If the snapshot contains an
+     * index, the search method is set to the method of this index. A VP_TREE or HNSW index which was built with
+     * another DistanceMetric than the current one is not used, it is built again by the first classify.
+     * The format of the data file (first data row, delimiter, output column and ignored columns) is replaced by the
+     * one of the snapshot, so insert handles its values like the lines of the file the snapshot was created from.
+     * k and the other settings of this classifier are kept.
+     * @param filename a String representing the filename of the snapshot
+     * @throws IOException if the file can not be read or is no snapshot of the current version
+     */
+    public void loadSnapshot(String filename) throws IOException {
+        System.out.print("Loading snapshot...");
+        updateLock.writeLock().lock();
+        try {
+            readSnapshot(SnapshotIO.map(filename));
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+        System.out.println("Done!");
+    }
+
+    /**
+     * Replaces the format of the data file, the datasets, the categories, the statistics and the index by the content
+     * of a snapshot
+     * @param in a ByteBuffer positioned after the header of the snapshot
+     */
+    private void readSnapshot(ByteBuffer in){
+        dataReader.readSnapshot(in);
+        effectiveOutputColumnCount = in.getInt();
+
+        store = DatasetStore.readSnapshot(in);
+
+        int categoryCount = in.getInt();
+        categories = new ArrayList<>();
+        labelCategories = new int[0];
+        for(int i = 0; i < categoryCount; i++){
+            int code = in.getInt();
+            categories.add(new OutputCategory(store.getLabel(code), store, SnapshotIO.readInts(in)));
+            setLabelCategory(code, i);
+        }
+
+        statistics = ColumnStatistics.readSnapshot(in);
+
+        batchSearch = null;
+        batchTrain = null;
+        scoringIndex = null;
+        distanceCache = null;
+        // All Euklidian kernels give the same distances, so only the class and the parameters of the metric are compared
+        String metricClass = SnapshotIO.readString(in);
+        double[] metricParameters = SnapshotIO.readDoubles(in);
+        boolean sameMetric = metricClass.equals(distanceMetric.getClass().getName())
+                && Arrays.equals(metricParameters, distanceMetric.getParameters());
+        SearchMethod method = SearchMethod.values()[in.getInt()];
+        NeighbourIndex index = null;
+        if(method == SearchMethod.KD_TREE){
+            index = new KdTree(getAllDatasets(), in);
+        }else if(method == SearchMethod.VP_TREE){
+            index = new VpTree(getAllDatasets(), in);
+        }else if(method == SearchMethod.HNSW){
+            index = new HnswIndex(getAllDatasets(), in);
+        }else if(method == SearchMethod.RP_FOREST){
+            index = new RpForest(getAllDatasets(), in);
+        }
+        if(index != null && (distanceMetric.isMetric() || !(index instanceof KdTree || index instanceof VpTree))){
+            searchMethod = method;
+            // The k-d tree prunes with the metric of the query, the other indexes are built again with the current
+            // metric by the first classify if the snapshot was saved with another one
+            if(sameMetric || index instanceof KdTree || index instanceof RpForest){
+                scoringIndex = new DynamicIndex(getAllDatasets(), index, train -> buildTree(train, null), executor,
+                        updateLock);
+            }
+        }
+
+        updateOutputCategories();
+    }
+
+    /**
+     * Sets a column to ignored state so it won't be used for classifying (first column = 1)
+     * @param col an int representing the column number
+     */
+    public void ignoreColumn(int col){
+        this.dataReader.addIgnoredColumn(col);
+    }
+
+    /**
+     * Sets multiple columns to ignored state so they won't be used for classifying (first column = 1)
+     * @param cols an int-array containing multiple column numbers
+     */
+    public void ignoreColumns(int[] cols){
+        for(int col : cols){
+            this.dataReader.addIgnoredColumn(col);
+        }
+    }
+
+    /**
+     * Sets the column which represents the output value (first column = 1)
+     * @param column an int representing the column number
+     */
+    public void setOutputColumnCount(int column){
+        if(column > 0){
+            this.dataReader.setOutputColumnCount(column);
+        }
+    }
+
+    /**
+     * Sets the delimiter of the attributes in the data file
+     * @param delimiter a String containing the delimiter
+     */
+    public void setDelimiter(String delimiter){
+        this.dataReader.setDelimiter(delimiter);
+    }
+
+    /**
+     * Sets the row number where the data in the file begins (first line = 1)
+     * @param row an int representing the row number
+     */
+    public void setDataBeginRowCount(int row){
+        if(row > 0) {
+            this.dataReader.setDataBeginRowCount(row);
+        }
+    }
+
+    /**
+     * Sets if the data file should be mapped into memory and parsed in parallel chunks on the executor
+     * The datasets are categorized while the following chunks are still being parsed
+     * @param parallelIngest a boolean representing the desired action
+     */
+    public void setParallelIngest(boolean parallelIngest){
+        this.parallelIngest = parallelIngest;
+        this.dataReader.setMemoryMapped(parallelIngest);
+    }
+
+    /**
+     * Returns the statistics of the numeric attributes of the read datasets
+     * @return a ColumnStatistics instance
+     */
+    public ColumnStatistics getStatistics(){
+        return statistics;
+    }
+
+    /**
+     * Sets if outliers should be removed before classifying
+     * @param removeOutliers a boolean representing the desired action
+     */
+    public void setRemoveOutliers(boolean removeOutliers){
+        this.removeOutliers = removeOutliers;
+    }
+
+    /**
+     * Sets if the order of the read data should be randomized before classifying
+     * @param randomizeOrder a boolean represented the desired action
+     */
+    public void setRandomizeOrder(boolean randomizeOrder) {
+        this.randomizeOrder = randomizeOrder;
+    }
+
+    /**
+     * Sets the method which is used for finding the nearest neighbours of a dataset
+     * @param searchMethod an enum-instance of SearchMethod representing the desired method
+     */
+    public void setSearchMethod(SearchMethod searchMethod){
+        if(searchMethod != null) {
+            updateLock.writeLock().lock();
+            try {
+                if(searchMethod != this.searchMethod){
+                    scoringIndex = null;
+                }
+                this.searchMethod = searchMethod;
+            }finally{
+                updateLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Sets the parameters of the approximate search (SearchMethod.HNSW)
+     * Larger values find more of the exact nearest neighbours, but need more time
+     * @param m an int representing the number of links of every dataset in the graph (2*m on the lowest layer)
+     * @param efConstruction an int representing the number of candidates searched for the links of a new dataset
+     * @param efSearch an int representing the number of candidates searched for a query (at least k)
+     */
+    public void setHnswParameters(int m, int efConstruction, int efSearch){
+        updateLock.writeLock().lock();
+        try {
+            if(m != hnswM || efConstruction != hnswEfConstruction){
+                hnswM = m;
+                hnswEfConstruction = efConstruction;
+                if(searchMethod == SearchMethod.HNSW){
+                    scoringIndex = null;
+                }
+            }
+            hnswEfSearch = efSearch;
+            if(scoringIndex != null && scoringIndex.getBaseIndex() instanceof HnswIndex){
+                ((HnswIndex)scoringIndex.getBaseIndex()).setEfSearch(efSearch);
+            }
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the parameters of the approximate search with random projection trees (SearchMethod.RP_FOREST)
+     * More trees and candidates find more of the exact nearest neighbours, but need more time
+     * @param trees an int representing the number of trees
+     * @param leafSize an int representing the maximum number of datasets in a leaf of a tree
+     * @param searchCandidates an int representing the number of candidates ranked for a query (at least k)
+     */
+    public void setRpForestParameters(int trees, int leafSize, int searchCandidates){
+        updateLock.writeLock().lock();
+        try {
+            if(trees != forestTrees || leafSize != forestLeafSize){
+                forestTrees = trees;
+                forestLeafSize = leafSize;
+                if(searchMethod == SearchMethod.RP_FOREST){
+                    scoringIndex = null;
+                }
+            }
+            forestSearchCandidates = searchCandidates;
+            if(scoringIndex != null && scoringIndex.getBaseIndex() instanceof RpForest){
+                ((RpForest)scoringIndex.getBaseIndex()).setSearchCandidates(searchCandidates);
+            }
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the compact encoding of the numeric attributes which the exhaustive search (SearchMethod.EXHAUSTIVE) scans
+     * Only a short list of the datasets is re-ranked with the exact values, the neighbours are the same as without
+     * an encoding (see QuantizedScan). INT8 uses the minimum and maximum of the read datasets.
+     * @param quantization an enum-instance of Quantization representing the desired encoding
+     */
+    public void setQuantization(Quantization quantization){
+        if(quantization != null){
+            updateLock.writeLock().lock();
+            try {
+                if(quantization != this.quantization && searchMethod == SearchMethod.EXHAUSTIVE){
+                    scoringIndex = null;
+                }
+                this.quantization = quantization;
+            }finally{
+                updateLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Sets the kernel which calculates the distance of the numeric attributes
+     * DistanceKernel.vectorOrScalar() returns a SIMD kernel if the JDK Vector API is available
+     * @param distanceKernel a DistanceKernel instance
+     */
+    public void setDistanceKernel(DistanceKernel distanceKernel){
+        if(distanceKernel != null) {
+            setDistanceMetric(new EuclideanMetric(distanceKernel));
+        }
+    }
+
+    /**
+     * Sets the metric which calculates the distance of the numeric attributes, the Levenshtein distance of the text
+     * attributes is added to it
+     * Metrics which do not satisfy the triangle inequality (e.g. CosineMetric) are searched exhaustively instead of
+     * by a KD_TREE or VP_TREE, the quantized scan and classifyBatch need the EuclideanMetric
+     * @param distanceMetric a DistanceMetric instance
+     */
+    public void setDistanceMetric(DistanceMetric distanceMetric){
+        if(distanceMetric != null) {
+            updateLock.writeLock().lock();
+            try {
+                // The Euklidian kernels give the same distances, so the built indexes can only be kept for them
+                if(!(distanceMetric instanceof EuclideanMetric && this.distanceMetric instanceof EuclideanMetric)){
+                    scoringIndex = null;
+                    distanceCache = null;
+                }
+                this.distanceMetric = distanceMetric;
+            }finally{
+                updateLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Sets if the k fold cross validation should calculate the distance of every pair of datasets only once
+     * The distances are kept in a PairwiseDistanceCache and reused by all passes and all following runs on the same
+     * data. If the cache does not fit into the heap, the distances are calculated in every pass as usual.
+     * @param cacheDistances a boolean representing the desired action
+     */
+    public void setCacheDistances(boolean cacheDistances){
+        updateLock.writeLock().lock();
+        try {
+            this.cacheDistances = cacheDistances;
+            if(!cacheDistances){
+                distanceCache = null;
+            }
+        }finally{
+            updateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the executor which runs the passes of the k fold cross validation in parallel
+     * It also parses the chunks of the data files read after this call if parallel ingest is enabled
+     * @param executor an ExecutorService instance, or null if all passes should run one after another on the calling thread
+     */
+    public void setExecutor(ExecutorService executor){
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the number of test datasets which are classified by one parallel task
+     * @param chunkSize an int representing the number of datasets per task
+     */
+    public void setChunkSize(int chunkSize){
+        if(chunkSize > 0) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Returns the metrics of this classifier, e.g. the latencies of reading, cross validating and classifying
+     * Use ClassifierMetrics.register to watch them over JMX.
+     * @return the ClassifierMetrics instance of this classifier
+     */
+    public ClassifierMetrics getMetrics(){
+        return metrics;
+    }
+
+    /**
+     * Moves every dataset of the store to its category, except the outliers
+     * A dataset is an outlier if the value of a numeric attribute is more than two times the standard deviation
+     * away from the mean of the attribute. The statistics were gathered while reading, so this is the only pass.
+     * @param store the DatasetStore which contains the read datasets
+     */
+    private void categorizeWithoutOutliers(DatasetStore store){
+        System.out.print("Removing outliers and categorizing...");
+        int dimensions = store.getNumericCount();
+        double[] lowest = new double[dimensions];
+        double[] highest = new double[dimensions];
+        for(int a = 0; a < dimensions; a++){
+            double deviation = OUTLIER_DEVIATIONS*statistics.getStandardDeviation(a);
+            lowest[a] = statistics.getMean(a)-deviation;
+            highest[a] = statistics.getMean(a)+deviation;
+        }
+
+        double[] block = store.getNumericBlock();
+        int removed = 0;
+        for(int row = 0; row < store.size(); row++){
+            boolean outlier = false;
+            for(int a = 0; a < dimensions && !outlier; a++){
+                double v = block[row*dimensions+a];
+                outlier = v < lowest[a] || v > highest[a];
+            }
+            if(outlier){
+                removed++;
+            }else{
+                categorize(store.getDataset(row));
+            }
+        }
+        System.out.println("Done!");
+        System.out.println("Removed "+removed+" outliers");
+    }
+
+    /**
+     * Moves a dataset to the category of its output value, the category is created if it doesn't exist yet
+     * @param dataset the Dataset instance which should be categorized
+     */
+    private void categorize(Dataset dataset){
+        if(effectiveOutputColumnCount <= 0){
+            return;
+        }
+
+        int code = dataset.getStore().getLabelCode(dataset.getRow());
+        if(code < 0){
+            return;
+        }
+        int index = code < labelCategories.length ? labelCategories[code] : -1;
+        if(index == -1){
+            index = categories.size();
+            categories.add(new OutputCategory(dataset.getAttribute(effectiveOutputColumnCount-1)));
+            setLabelCategory(code, index);
+        }
+
+        categories.get(index).addDataset(dataset);
+    }
+
+    /**
+     * Stores the index of the category which belongs to a label code
+     * @param code the label code of the store
+     * @param index the index of the category
+     */
+    private void setLabelCategory(int code, int index){
+        if(code >= labelCategories.length){
+            int length = labelCategories.length;
+            labelCategories = Arrays.copyOf(labelCategories, Math.max(code+1, length*2));
+            Arrays.fill(labelCategories, length, labelCategories.length, -1);
+        }
+        labelCategories[code] = index;
+    }
+
+    /**
+     * Returns the index of the category of a dataset, the dataset has to be part of the store of the categories
+     * @param dataset the Dataset instance whose category should be found
+     * @return an int containing the index of the category, or -1 if there is no category for its output value
+     */
+    private int categoryOf(Dataset dataset){
+        int code = dataset.getStore().getLabelCode(dataset.getRow());
+        return code >= 0 && code < labelCategories.length ? labelCategories[code] : -1;
+    }
+
+    /**
+     * Returns the value of a category
+     * @param category the index of the category, or -1
+     * @return an Attribute representing the output value, or null if the index is -1
+     */
+    private Attribute getCategoryValue(int category){
+        return category < 0 ? null : categories.get(category).getCategoryValue();
+    }
+
+    /**
+     * Classifies all datasets once by using k fold cross validation
+     */
+    public void doKFoldCross(){
+        // Reset confusion matrix
+        confusionMatrix.resetMatrix();
+
+        // Create k packs
+        ArrayList<ArrayList<Dataset>> packs = createPacks();
+
+        // Check if enough packs are available
+        if(packs.size() != k){
+            return;
+        }
+
+        if(cacheDistances){
+            prepareDistanceCache(store);
+        }
+
+        // Do k passes and change pack for testing each time
+        if(executor != null){
+            doPassesParallel(packs);
+        }else {
+            for (int i = 0; i < k; i++) {
+                doPass(i, packs);
+            }
+        }
+
+        // Print confusion matrix
+        System.out.println("Printing results...\n");
+        confusionMatrix.printMatrix();
+    }
+
+    /**
+     * Classifies every dataset once by using all other datasets for training (leave-one-out cross validation)
+     * Instead of a pass per dataset, the index of classify is used for all of them: every dataset searches its k+1
+     * nearest neighbours and itself is left out of them. If the dataset is not part of the found neighbours (e.g. it
+     * has more than k duplicates), the nearest k of them are used.
+     */
+    public void doLeaveOneOut(){
+        confusionMatrix.resetMatrix();
+
+        updateLock.readLock().lock();
+        try {
+            final ArrayList<Dataset> train = getAllDatasets();
+            if(train.size() < 2){
+                return;
+            }
+            if(cacheDistances){
+                prepareDistanceCache(train.get(0).getStore());
+            }
+            final PairwiseDistanceCache cache = distanceCache;
+            final NeighbourIndex index = cache != null ? null : getScoringIndex();
+
+            System.out.print("Classifying "+train.size()+" datasets...");
+            ArrayList<Callable<ConfusionMatrix>> chunkTasks = new ArrayList<>();
+            for(int from = 0; from < train.size(); from += chunkSize){
+                final List<Dataset> chunk = train.subList(from, Math.min(from+chunkSize, train.size()));
+                chunkTasks.add(() -> {
+                    ConfusionMatrix partial = confusionMatrix.createPartial();
+                    for(Dataset dataset : chunk){
+                        QueryState state = queryState(dataset, k+1);
+                        Dataset[] neighbours = state.neighbours;
+                        int count = findNeighbours(state, train, index, cache, k+1);
+                        int self = 0;
+                        while(self < count && !neighbours[self].equals(dataset)){
+                            self++;
+                        }
+                        if(self < count){
+                            System.arraycopy(neighbours, self+1, neighbours, self, count-self-1);
+                            count--;
+                        }else if(count > k){
+                            count--;
+                        }
+                        partial.increment(vote(neighbours, count), categoryOf(dataset));
+                    }
+                    return partial;
+                });
+            }
+            for(ConfusionMatrix partial : invokeAll(chunkTasks)){
+                confusionMatrix.merge(partial);
+            }
+            System.out.println("Done!");
+        }finally{
+            updateLock.readLock().unlock();
+        }
+
+        System.out.println("Printing results...\n");
+        confusionMatrix.printMatrix();
+    }
+
+    /**
+     * Evaluates every number of neighbours from 1 to maxK with a single k fold cross validation
+     * The maxK nearest neighbours of every test dataset are searched only once, the prediction for a smaller number
+     * of neighbours is voted from the nearest ones of this list. The number of folds stays k (see setK), so the result
+     * for a number n is the same as the one of doKFoldCross after setting k to n while keeping k folds.
+     * For the approximate search methods the nearest n of the maxK found neighbours can differ from the n found ones.
+     * @param maxK the largest number of neighbours which should be evaluated
+     * @return an ArrayList containing the confusion matrix of every number of neighbours, entry i for i+1 neighbours,
+     *         or an empty list if there are not enough datasets for k packs
+     */
+    public ArrayList<ConfusionMatrix> doKSweep(final int maxK){
+        ArrayList<ConfusionMatrix> results = new ArrayList<>();
+        ArrayList<ArrayList<Dataset>> packs = createPacks();
+        if(packs.size() != k || maxK < 1){
+            return results;
+        }
+
+        if(cacheDistances){
+            prepareDistanceCache(store);
+        }
+
+        System.out.print("Evaluating k from 1 to "+maxK+"...");
+        // Build the training list and the tree of every pass
+        ArrayList<Callable<NeighbourIndex>> treeTasks = new ArrayList<>();
+        final ArrayList<ArrayList<Dataset>> trains = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            final ArrayList<Dataset> train = createTrainingList(i, packs);
+            trains.add(train);
+            treeTasks.add(() -> distanceCache != null ? null : buildTree(train));
+        }
+        ArrayList<NeighbourIndex> trees = invokeAll(treeTasks);
+
+        // Every chunk counts the predictions of all numbers of neighbours in its own partial matrices
+        ArrayList<Callable<ConfusionMatrix[]>> chunkTasks = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            final ArrayList<Dataset> test = packs.get(i);
+            final ArrayList<Dataset> train = trains.get(i);
+            final NeighbourIndex tree = trees.get(i);
+            final PairwiseDistanceCache cache = distanceCache;
+            for(int from = 0; from < test.size(); from += chunkSize){
+                final List<Dataset> chunk = test.subList(from, Math.min(from+chunkSize, test.size()));
+                chunkTasks.add(() -> {
+                    ConfusionMatrix[] partials = new ConfusionMatrix[maxK];
+                    for(int n = 0; n < maxK; n++){
+                        partials[n] = confusionMatrix.createPartial();
+                    }
+                    for(Dataset dataset : chunk){
+                        int reference = categoryOf(dataset);
+                        QueryState state = queryState(dataset, maxK);
+                        int count = findNeighbours(state, train, tree, cache, maxK);
+                        int[] predictions = votePrefixes(state.neighbours, count, maxK);
+                        for(int n = 0; n < maxK; n++){
+                            partials[n].increment(predictions[n], reference);
+                        }
+                    }
+                    return partials;
+                });
+            }
+        }
+        for(int n = 0; n < maxK; n++){
+            results.add(confusionMatrix.createPartial());
+        }
+        for(ConfusionMatrix[] partials : invokeAll(chunkTasks)){
+            for(int n = 0; n < maxK; n++){
+                results.get(n).merge(partials[n]);
+            }
+        }
+        System.out.println("Done!");
+
+        System.out.println("Printing results...\n");
+        int best = 0;
+        DecimalFormat format = new DecimalFormat("#.##");
+        for(int n = 0; n < maxK; n++){
+            System.out.println("k = "+(n+1)+": Accuracy: "+format.format(results.get(n).getAccuracy()*100)+"%");
+            if(results.get(n).getAccuracy() > results.get(best).getAccuracy()){
+                best = n;
+            }
+        }
+        System.out.println("-------------------------------------");
+        System.out.println("Best k: "+(best+1));
+        return results;
+    }
+
+    /**
+     * Compares the selected search method with the exact search by using k fold cross validation
+     * The printed confusion matrix uses the prediction of the exact search as reference, so its accuracy is the share
+     * of datasets which the selected (e.g. approximate) method classifies the same way. The recall is the share of
+     * the exact nearest neighbours which are found by the selected method.
+     */
+    public void compareWithExactSearch(){
+        ArrayList<ArrayList<Dataset>> packs = createPacks();
+        if(packs.size() != k){
+            return;
+        }
+
+        System.out.print("Comparing "+searchMethod+" with the exact search...");
+        final AtomicLong found = new AtomicLong();
+        final AtomicLong expected = new AtomicLong();
+        ArrayList<Callable<ConfusionMatrix>> chunkTasks = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            final ArrayList<Dataset> test = packs.get(i);
+            final ArrayList<Dataset> train = createTrainingList(i, packs);
+            final NeighbourIndex tree = buildTree(train);
+            for(int from = 0; from < test.size(); from += chunkSize){
+                final List<Dataset> chunk = test.subList(from, Math.min(from+chunkSize, test.size()));
+                chunkTasks.add(() -> {
+                    ConfusionMatrix partial = confusionMatrix.createPartial();
+                    for(Dataset dataset : chunk){
+                        List<Dataset> exact = findNearest(dataset, train, k);
+                        List<Dataset> selected = tree == null ? exact
+                                : tree.nearest(new DatasetEuklidianComparator(dataset, distanceMetric), k);
+                        partial.increment(vote(selected), vote(exact));
+
+                        HashSet<Dataset> exactSet = new HashSet<>(exact);
+                        for(Dataset neighbour : selected){
+                            if(exactSet.contains(neighbour)){
+                                found.incrementAndGet();
+                            }
+                        }
+                        expected.addAndGet(exact.size());
+                    }
+                    return partial;
+                });
+            }
+        }
+        ConfusionMatrix agreement = confusionMatrix.createPartial();
+        for(ConfusionMatrix partial : invokeAll(chunkTasks)){
+            agreement.merge(partial);
+        }
+        System.out.println("Done!");
+
+        System.out.println("Printing results...\n");
+        System.out.println("Reference: exact search, Prediction: "+searchMethod);
+        agreement.printMatrix();
+        System.out.println("Recall of the nearest neighbours: "
+                +new DecimalFormat("#.##").format((double)found.get()/(double)Math.max(expected.get(), 1)*100)+"%");
+    }
+
+    /**
+     * Does a single pass from k fold cross validation
+     * @param passIndex the index of the current pass (first pass = 0, last pass = k-1)
+     * @param packs an ArrayList which represents all k packs used for this pass
+     */
+    private void doPass(int passIndex, ArrayList<ArrayList<Dataset>> packs){
+        System.out.print("Doing pass "+(passIndex+1)+"...");
+        long startNanos = System.nanoTime();
+
+        ArrayList<Dataset> train = createTrainingList(passIndex, packs);
+        NeighbourIndex tree = distanceCache != null ? null : buildTree(train);
+
+        // Go through each entry of test pack
+        for(Dataset test : packs.get(passIndex)){
+            // Predict output
+            int prediction = classifyDataset(test, train, tree, distanceCache);
+            // Add entry to confusion matrix
+            confusionMatrix.increment(prediction, categoryOf(test));
+        }
+
+        metrics.recordFoldPass(System.nanoTime()-startNanos);
+        System.out.println("Done!");
+    }
+
+    /**
+     * Does all k passes from k fold cross validation in parallel on the executor
+     * First the training lists and trees of all passes are built in parallel, afterwards the test datasets of all
+     * passes are split into chunks which are classified in parallel. Each chunk counts its predictions in its own
+     * partial confusion matrix, all partial matrices are merged at the end.
+     * @param packs an ArrayList which represents all k packs
+     */
+    private void doPassesParallel(final ArrayList<ArrayList<Dataset>> packs){
+        System.out.print("Doing "+k+" passes in parallel...");
+
+        // The time of every pass is summed up over its tree and its chunks, which run on different threads
+        final AtomicLongArray passNanos = new AtomicLongArray(k);
+
+        // Build the training list and the tree of every pass
+        ArrayList<Callable<NeighbourIndex>> treeTasks = new ArrayList<>();
+        final ArrayList<ArrayList<Dataset>> trains = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            final int pass = i;
+            final ArrayList<Dataset> train = createTrainingList(i, packs);
+            trains.add(train);
+            treeTasks.add(() -> {
+                long startNanos = System.nanoTime();
+                NeighbourIndex tree = distanceCache != null ? null : buildTree(train);
+                passNanos.addAndGet(pass, System.nanoTime()-startNanos);
+                return tree;
+            });
+        }
+        ArrayList<NeighbourIndex> trees = invokeAll(treeTasks);
+
+        // Classify the test datasets of every pass in chunks
+        ArrayList<Callable<ConfusionMatrix>> chunkTasks = new ArrayList<>();
+        for(int i = 0; i < k; i++){
+            final int pass = i;
+            final ArrayList<Dataset> test = packs.get(i);
+            final ArrayList<Dataset> train = trains.get(i);
+            final NeighbourIndex tree = trees.get(i);
+            final PairwiseDistanceCache cache = distanceCache;
+            for(int from = 0; from < test.size(); from += chunkSize){
+                final List<Dataset> chunk = test.subList(from, Math.min(from+chunkSize, test.size()));
+                chunkTasks.add(() -> {
+                    long startNanos = System.nanoTime();
+                    ConfusionMatrix partial = confusionMatrix.createPartial();
+                    for(Dataset dataset : chunk){
+                        partial.increment(classifyDataset(dataset, train, tree, cache), categoryOf(dataset));
+                    }
+                    passNanos.addAndGet(pass, System.nanoTime()-startNanos);
+                    return partial;
+                });
+            }
+        }
+        for(ConfusionMatrix partial : invokeAll(chunkTasks)){
+            confusionMatrix.merge(partial);
+        }
+        for(int i = 0; i < k; i++){
+            metrics.recordFoldPass(passNanos.get(i));
+        }
+
+        System.out.println("Done!");
+    }
+
+    /**
+     * Runs all tasks on the executor and waits for their results
+     * @param tasks an ArrayList of tasks
+     * @return an ArrayList containing the results in the same order as the tasks
+     */
+    private <T> ArrayList<T> invokeAll(ArrayList<Callable<T>> tasks){
+        ArrayList<T> results = new ArrayList<>();
+        if(executor == null){
+            for(Callable<T> task : tasks){
+                try {
+                    results.add(task.call());
+                }catch(Exception e){
+                    throw new IllegalStateException("A pass failed", e);
+                }
+            }
+            return results;
+        }
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel passes", e);
+        }catch(ExecutionException e){
+            throw new IllegalStateException("A parallel pass failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Creates the list of training datasets for a pass, which contains all packs except the test pack
+     * @param passIndex the index of the current pass (first pass = 0, last pass = k-1)
+     * @param packs an ArrayList which represents all k packs
+     * @return an ArrayList of Dataset instances which should be used for training
+     */
+    private ArrayList<Dataset> createTrainingList(int passIndex, ArrayList<ArrayList<Dataset>> packs){
+        ArrayList<Dataset> train = new ArrayList<>();
+        for(int j = 0; j < k; j++){
+            if(j == passIndex) continue;
+            train.addAll(packs.get(j));
+        }
+        return train;
+    }
+
+    /**
+     * Calculates the distances of all pairs of datasets in the store, if they are not cached yet and fit into the heap
+     * @param store the DatasetStore which contains all datasets, or null if no datasets were read
+     */
+    private void prepareDistanceCache(DatasetStore store){
+        if(store == null || store.size() == 0){
+            distanceCache = null;
+            return;
+        }
+        if(distanceCache != null && distanceCache.covers(store)){
+            return;
+        }
+        if(!PairwiseDistanceCache.fits(store.size())){
+            System.out.println("Too many datasets for caching all distances!");
+            distanceCache = null;
+            return;
+        }
+        System.out.print("Calculating distances...");
+        distanceCache = new PairwiseDistanceCache(store, distanceMetric, executor);
+        System.out.println("Done!");
+    }
+
+    /**
+     * Builds the index of the selected search method over the training datasets
+     * @param train an ArrayList of Dataset instances which should be used for training
+     * @return a NeighbourIndex instance, or null if the datasets should be searched exhaustively
+     */
+    private NeighbourIndex buildTree(ArrayList<Dataset> train){
+        return buildTree(train, null);
+    }
+
+    /**
+     * Builds the index of the selected search method over the training datasets
+     * @param train an ArrayList of Dataset instances which should be used for training
+     * @param buildExecutor an ExecutorService which builds independent parts of the index in parallel, or null
+     * @return a NeighbourIndex instance, or null if the datasets should be searched exhaustively
+     */
+    private NeighbourIndex buildTree(ArrayList<Dataset> train, ExecutorService buildExecutor){
+        if(!distanceMetric.isMetric() && (searchMethod == SearchMethod.KD_TREE || searchMethod == SearchMethod.VP_TREE)){
+            // Both trees prune by bounds which only hold for metrics
+            return null;
+        }
+        switch(searchMethod){
+            case KD_TREE: return new KdTree(train);
+            case VP_TREE: return new VpTree(train, distanceMetric);
+            case HNSW: return new HnswIndex(train, distanceMetric, hnswM, hnswEfConstruction, hnswEfSearch);
+            case RP_FOREST: return new RpForest(train, forestTrees, forestLeafSize, forestSearchCandidates, buildExecutor);
+            default: return quantization == Quantization.NONE || !(distanceMetric instanceof EuclideanMetric) ? null
+                    : new QuantizedScan(train, quantization, statistics);
+        }
+    }
+
+    /**
+     * Classifies a single dataset by using a list of training data
+     * @param candidate the dataset to be classified
+     * @param train an ArrayList of Dataset instances which should be used for training
+     * @param tree a NeighbourIndex built over the training datasets, or null if the list should be searched exhaustively
+     * @param cache a PairwiseDistanceCache which contains the distances of all datasets, or null
+     * @return an int containing the index of the predicted category, or -1 if there are no neighbours
+     */
+    private int classifyDataset(Dataset candidate, ArrayList<Dataset> train, NeighbourIndex tree,
+                                PairwiseDistanceCache cache){
+        long startNanos = System.nanoTime();
+        QueryState state = queryState(candidate, k);
+        int prediction = vote(state.neighbours, findNeighbours(state, train, tree, cache, k));
+        metrics.recordQuery(System.nanoTime()-startNanos, state.comparator);
+        return prediction;
+    }
+
+    /**
+     * Finds the nearest neighbours of the candidate of a query in a list of training data
+     * @param state the QueryState whose comparator measures the distances to the candidate
+     * @param train an ArrayList of Dataset instances which should be used for training
+     * @param tree a NeighbourIndex built over the training datasets, or null if the list should be searched exhaustively
+     * @param cache a PairwiseDistanceCache which contains the distances of all datasets, or null
+     * @param count the number of neighbours which should be found
+     * @return an int containing the number of neighbours, they are written to the neighbours of the state ordered by
+     *         ascending distance
+     */
+    private int findNeighbours(QueryState state, ArrayList<Dataset> train, NeighbourIndex tree,
+                               PairwiseDistanceCache cache, int count){
+        Dataset candidate = state.comparator.getCandidate();
+        if(cache != null && cache.covers(candidate.getStore())){
+            List<Dataset> found = cache.nearest(candidate, train, count);
+            for(int i = 0; i < found.size(); i++){
+                state.neighbours[i] = found.get(i);
+            }
+            return found.size();
+        }else if(tree != null){
+            return tree.nearest(state.comparator, count, state.neighbours);
+        }
+        return findNearest(state, train, count);
+    }
+
+    /**
+     * Returns the buffers of the current thread for a query of the given candidate
+     * @param candidate the Dataset whose neighbours should be found
+     * @param count the number of neighbours which should be found
+     * @return a QueryState instance whose comparator measures the distances to the candidate
+     */
+    private QueryState queryState(Dataset candidate, int count){
+        QueryState state = queryStates.get();
+        if(state == null){
+            state = new QueryState(candidate, distanceMetric);
+            queryStates.set(state);
+        }else{
+            state.comparator.reset(candidate, distanceMetric);
+        }
+        if(state.neighbours.length < count){
+            state.neighbours = new Dataset[count];
+        }
+        return state;
+    }
+
+    /**
+     * Classifies many datasets at once by using all read datasets for training
+     * The distances are calculated in cache-sized tiles (see BlockedSearch), which is much faster than
+     * classifying the datasets one by one
+     * @param candidates a List of Dataset instances which should be classified
+     * @return an ArrayList of Attributes representing the predicted output of each candidate, in the same order
+     */
+    public ArrayList<Attribute> classifyBatch(List<Dataset> candidates){
+        updateLock.readLock().lock();
+        try {
+            ArrayList<Attribute> predictions = new ArrayList<>();
+            if(!(distanceMetric instanceof EuclideanMetric)){
+                // The tiles are calculated as Euklidian distances, other metrics classify one dataset after another
+                NeighbourIndex index = getScoringIndex();
+                for(Dataset candidate : candidates){
+                    predictions.add(getCategoryValue(vote(index.nearest(
+                            new DatasetEuklidianComparator(candidate, distanceMetric), k))));
+                }
+                return predictions;
+            }
+
+            BlockedSearch search = getBatchSearch();
+            for(int[] indices : search.nearest(candidates, k)){
+                ArrayList<Dataset> neighbours = new ArrayList<>();
+                for(int index : indices){
+                    neighbours.add(batchTrain.get(index));
+                }
+                predictions.add(getCategoryValue(vote(neighbours)));
+            }
+            return predictions;
+        }finally{
+            updateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the blocked search over all read datasets, it is built with the first batch after reading the data
+     * @return a BlockedSearch instance
+     */
+    private synchronized BlockedSearch getBatchSearch(){
+        if(batchSearch == null){
+            batchSearch = new BlockedSearch(getAllDatasets());
+        }
+        return batchSearch;
+    }
+
+    /**
+     * Classifies a single dataset by using all read datasets for training
+     * The index of the selected search method is built with the first call after reading the data
+     * @param candidate the Dataset instance which should be classified, it may be part of another store
+     * @return an Attribute representing the predicted output
+     */
+    public Attribute classify(Dataset candidate){
+        updateLock.readLock().lock();
+        try {
+            long startNanos = System.nanoTime();
+            QueryState state = queryState(candidate, k);
+            int count = getScoringIndex().nearest(state.comparator, k, state.neighbours);
+            int prediction = vote(state.neighbours, count);
+            metrics.recordQuery(System.nanoTime()-startNanos, state.comparator);
+            return getCategoryValue(prediction);
+        }finally{
+            updateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the index over all training datasets, it is built with the first call after reading the data
+     * The base index is built by the selected search method, the compactions after inserts and deletes build it
+     * on an executor thread, so they don't use the executor for the parts of the index
+     * @return a DynamicIndex instance
+     */
+    private synchronized DynamicIndex getScoringIndex(){
+        if(scoringIndex == null){
+            ArrayList<Dataset> train = getAllDatasets();
+            NeighbourIndex baseIndex = buildTree(train, executor);
+            Function<ArrayList<Dataset>, NeighbourIndex> builder = baseIndex == null ? null
+                    : list -> buildTree(list, null);
+            scoringIndex = new DynamicIndex(train, baseIndex, builder, executor, updateLock);
+        }
+        return scoringIndex;
+    }
+
+    /**
+     * Returns the list of all read datasets ordered by their category, it is created once after reading the data
+     * @return an ArrayList of Dataset instances
+     */
+    private synchronized ArrayList<Dataset> getAllDatasets(){
+        if(batchTrain == null){
+            batchTrain = new ArrayList<>();
+            for(OutputCategory cat : categories){
+                for(int i = 0; i < cat.getDatasetNumber(); i++){
+                    batchTrain.add(cat.getDataset(i));
+                }
+            }
+        }
+        return batchTrain;
+    }
+
+    /**
+     * Finds the output category which is found the most in the given neighbours
+     * @param neighbours a List of Dataset instances containing the nearest neighbours
+     * @return an int containing the index of the predicted category, or -1 if there are no neighbours
+     */
+    private int vote(List<Dataset> neighbours){
+        return vote(neighbours.toArray(new Dataset[0]), neighbours.size());
+    }
+
+    /**
+     * Finds the output category which is found the most in the given neighbours
+     * If several categories are found equally often, the first one of them wins
+     * @param neighbours a Dataset-Array containing the nearest neighbours
+     * @param count the number of neighbours in the array
+     * @return an int containing the index of the predicted category, or -1 if there are no neighbours
+     */
+    private int vote(Dataset[] neighbours, int count){
+        int[] numbers = getVotes();
+        int predicted = -1;
+        int mostValue = 0;
+        for(int i = 0; i < count; i++){
+            int category = categoryOf(neighbours[i]);
+            if(category < 0){
+                continue;
+            }
+            int number = ++numbers[category];
+            if(number > mostValue || (number == mostValue && category < predicted)){
+                mostValue = number;
+                predicted = category;
+            }
+        }
+
+        // Only the counted categories are cleared, so a vote does not depend on the number of categories
+        for(int i = 0; i < count; i++){
+            int category = categoryOf(neighbours[i]);
+            if(category >= 0){
+                numbers[category] = 0;
+            }
+        }
+        return predicted;
+    }
+
+    /**
+     * Finds the output category which is found the most in every prefix of the given neighbours
+     * The prediction for the first i+1 neighbours is the same as vote would return for them, the counts are only
+     * updated by one neighbour at a time.
+     * @param neighbours a Dataset-Array containing the nearest neighbours, the nearest one first
+     * @param count the number of neighbours in the array
+     * @param maxK the number of prefixes which should be voted on
+     * @return an int-Array whose entry i is the index of the predicted category of the i+1 nearest neighbours
+     */
+    private int[] votePrefixes(Dataset[] neighbours, int count, int maxK){
+        int[] numbers = getVotes();
+        int[] predictions = new int[maxK];
+        int predicted = -1;
+        int mostValue = 0;
+        for(int i = 0; i < maxK; i++){
+            if(i < count){
+                int category = categoryOf(neighbours[i]);
+                if(category >= 0){
+                    // Like vote, the first category with the highest number wins
+                    int number = ++numbers[category];
+                    if(number > mostValue || (number == mostValue && category < predicted)){
+                        mostValue = number;
+                        predicted = category;
+                    }
+                }
+            }
+            predictions[i] = predicted;
+        }
+
+        for(int i = 0; i < Math.min(maxK, count); i++){
+            int category = categoryOf(neighbours[i]);
+            if(category >= 0){
+                numbers[category] = 0;
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Returns the vote counts of the current thread, all entries are zero
+     * @return an int-Array containing at least one entry per category
+     */
+    private int[] getVotes(){
+        int[] numbers = VOTES.get();
+        if(numbers.length < categories.size()){
+            numbers = new int[categories.size()];
+            VOTES.set(numbers);
+        }
+        return numbers;
+    }
+
+    /**
+     * Finds the k nearest neighbours of the candidate of a query by scanning the whole training list once
+     * Like findNearest, but the heap and the neighbours are the buffers of the query, so nothing is allocated
+     * @param state the QueryState whose comparator measures the distances to the candidate
+     * @param train an ArrayList of Dataset instances which should be searched
+     * @param count the number of neighbours which should be found
+     * @return an int containing the number of neighbours, they are written to the neighbours of the state ordered by
+     *         ascending distance
+     */
+    private int findNearest(QueryState state, ArrayList<Dataset> train, int count){
+        DatasetEuklidianComparator cmp = state.comparator;
+        NeighbourHeap heap = state.heap;
+        heap.reset(Math.min(count, train.size()));
+        for(int i = 0; i < train.size(); i++){
+            heap.offer(cmp.rankDistance(train.get(i), heap.worstDistance()), i);
+        }
+
+        int found = heap.sortInPlace();
+        for(int i = 0; i < found; i++){
+            state.neighbours[i] = train.get(heap.getSortedIndex(i));
+        }
+        return found;
+    }
+
+    /**
+     * Finds the k nearest neighbours of a dataset by scanning the whole training list once
+     * Every distance is calculated only once and only the best k datasets are kept in a bounded heap,
+     * the training list itself is not changed
+     * @param candidate the dataset whose neighbours should be found
+     * @param train an ArrayList of Dataset instances which should be searched
+     * @param count the number of neighbours which should be found
+     * @return an ArrayList of Dataset instances containing the nearest neighbours, the nearest one first
+     */
+    private ArrayList<Dataset> findNearest(Dataset candidate, ArrayList<Dataset> train, int count){
+        DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(candidate, distanceMetric);
+        NeighbourHeap heap = new NeighbourHeap(Math.min(count, train.size()));
+        for(int i = 0; i < train.size(); i++){
+            heap.offer(cmp.rankDistance(train.get(i), heap.worstDistance()), i);
+        }
+
+        ArrayList<Dataset> neighbours = new ArrayList<>();
+        for(int index : heap.drainSorted()){
+            neighbours.add(train.get(index));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Measures the time used for classifying a set number of datasets
+     * @param number the number of datasets for which the time should be measured
+     * @deprecated there is no warmup and only a single dataset is classified, use the JMH benchmarks instead
+     *             (mvn -P benchmarks package, java -jar target/benchmarks.jar)
+     */
+    @Deprecated
+    public void measureClassifyingTime(int number){
+        // Creating packs
+        ArrayList<ArrayList<Dataset>> packs = createPacks();
+
+        // Create List for training datasets
+        ArrayList<Dataset> train = new ArrayList<>();
+        for(int j = 1; j < k; j++){
+            train.addAll(packs.get(j));
+        }
+
+        // Get single dataset for classifying
+        Dataset test = packs.get(0).get(0);
+        NeighbourIndex tree = buildTree(train);
+
+        System.out.print("Measuring time...");
+
+        long startNanos = System.nanoTime();
+        for(int i = 0; i < number; i++){
+            classifyDataset(test, train, tree, null);
+        }
+        long timeUsed = System.nanoTime() - startNanos;
+
+        System.out.println("Done!");
+
+        System.out.println("Printing results...");
+        Duration d = Duration.ofNanos(timeUsed);
+        String formatted = d.toString().substring(2).replaceAll("(\\d[HMS])(?!$)", "$1 ").toLowerCase();
+        System.out.println("Classified "+number+" datasets in "+formatted+"!");
+    }
+
+    /**
+     * Creates k number of packs where the datasets of each output category are evenly spread across all packs
+     * @return an ArrayList of ArrayLists of Datasets where each entry of the outer most ArrayList represents a pack
+     */
+    private ArrayList<ArrayList<Dataset>> createPacks(){
+        System.out.print("Creating packs...");
+        long startNanos = System.nanoTime();
+        ArrayList<ArrayList<Dataset>> packs = new ArrayList<>();
+
+        for(int i = 0; i < k; i++){ // Loop through every pack (k packs)
+            ArrayList<Dataset> pack = new ArrayList<>();
+            for(int j = 0; j < categories.size(); j++){ // Loop through every category
+                OutputCategory cat = categories.get(j);
+
+                // Calculate next start and end index in this category for current pack
+                int startIndex = 0;
+                int endIndex = 0;
+                if(cat.getDatasetNumber()%k == 0){
+                    startIndex = cat.getDatasetNumber()/k*i;
+                    endIndex = startIndex+cat.getDatasetNumber()/k;
+                }else if(cat.getDatasetNumber()%k <= i){
+                    startIndex = cat.getDatasetNumber()%k*(int)Math.ceil((double)cat.getDatasetNumber()/k)+
+                            (i-cat.getDatasetNumber()%k)*(int)Math.floor((double)cat.getDatasetNumber()/k);
+                    endIndex = startIndex+(int)Math.floor((double)cat.getDatasetNumber()/k);
+                }else{
+                    startIndex = i*(int)Math.ceil((double)cat.getDatasetNumber()/k);
+                    endIndex = startIndex+(int)Math.ceil((double)cat.getDatasetNumber()/k);
+                }
+
+                // Loop through datasets in current category which should be added in current pack
+                for(int n = startIndex; n < endIndex; n++){
+                    pack.add(cat.getDataset(n));
+                }
+            }
+            packs.add(pack);
+        }
+        metrics.recordPackCreation(System.nanoTime()-startNanos);
+        System.out.println("Done!");
+        return packs;
+    }
+
+    /**
+     * The buffers of the queries of one thread
+     */
+    private static class QueryState {
+        private DatasetEuklidianComparator comparator;
+        private NeighbourHeap heap = new NeighbourHeap(0);
+        private Dataset[] neighbours = new Dataset[0];
+
+        QueryState(Dataset candidate, DistanceMetric metric){
+            comparator = new DatasetEuklidianComparator(candidate, metric);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package knn;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, thread-safe cache for the Levenshtein distances between dictionary codes of one text column
+ * Every slot of the cache holds one packed entry (both codes and the distance), so a lookup is a single read
+ * without locks or allocation. If two pairs map to the same slot, the newer pair replaces the older one.
+ */
+public class LevenshteinCache {
+    private static final int CODE_BITS = 24;
+    private static final long CODE_MASK = (1L << CODE_BITS)-1;
+    private static final int MAX_DISTANCE = (1 << 16)-2;
+
+    private AtomicLongArray entries;
+    private int mask;
+
+    /**
+     * Creates a new empty cache
+     * @param capacity an int representing the number of slots, rounded up to the next power of two
+     */
+    public LevenshteinCache(int capacity){
+        int size = Integer.highestOneBit(Math.max(capacity-1, 1)) << 1;
+        this.entries = new AtomicLongArray(size);
+        this.mask = size-1;
+    }
+
+    /**
+     * Returns the cached distance between two codes
+     * @param code1 the code of the first value
+     * @param code2 the code of the second value
+     * @return an int containing the distance, or -1 if the pair is not cached
+     */
+    public int get(int code1, int code2){
+        long key = key(code1, code2);
+        if(key < 0){
+            return -1;
+        }
+        long entry = entries.get(slot(key));
+        if(entry == 0 || (entry >>> 16) != key){
+            return -1;
+        }
+        return (int)(entry & 0xFFFF)-1;
+    }
+
+    /**
+     * Stores the distance between two codes
+     * Pairs with very large codes or distances are not cached
+     * @param code1 the code of the first value
+     * @param code2 the code of the second value
+     * @param distance the Levenshtein distance of both values
+     */
+    public void put(int code1, int code2, int distance){
+        long key = key(code1, code2);
+        if(key < 0 || distance < 0 || distance > MAX_DISTANCE){
+            return;
+        }
+        entries.lazySet(slot(key), (key << 16) | (distance+1));
+    }
+
+    /**
+     * Packs both codes into one key, the smaller code first because the distance is symmetric
+     */
+    private static long key(int code1, int code2){
+        if(code1 < 0 || code2 < 0 || code1 > CODE_MASK || code2 > CODE_MASK){
+            return -1;
+        }
+        long low = Math.min(code1, code2), high = Math.max(code1, code2);
+        return (low << CODE_BITS) | high;
+    }
+
+    private int slot(long key){
+        long h = key*0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32) & mask;
+    }
+}
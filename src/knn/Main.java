@@ -1,3 +1,5 @@
+package knn;
+
 public class Main {
 
     public static void main(String[] args) {
@@ -17,11 +19,10 @@ public class Main {
         classifier.readData("datafiles/winequality-white-data.csv");
 
 
-        /* CLASSIFY NORMAL *
+        /* CLASSIFY NORMAL */
         classifier.doKFoldCross();
 
-        /* CLASSIFY TIMED */
-        classifier.measureClassifyingTime(100000);
+        /* CLASSIFY TIMED: use the JMH benchmarks (see README) */
 
         /**/
     }
@@ -0,0 +1,58 @@
+package knn;
+
+/**
+ * The Manhattan distance of the numeric attributes, the sum of the absolute differences
+ */
+public class ManhattanMetric implements DistanceMetric {
+
+    /**
+     * Creates a new instance of the Manhattan metric
+     */
+    public ManhattanMetric(){
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS
+                && exceedsBound(row, offset, order, orderedCandidate, bound*(1+EARLY_ABANDON_SLACK))){
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double dist = 0.0;
+        for(int i = 0; i < candidate.length; i++){
+            dist += Math.abs(row[offset+i]-candidate[i]);
+        }
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    /**
+     * Sums up the absolute differences in the order of descending variance and checks the limit after every 8
+     * attributes
+     * @return true if the distance is larger than the limit
+     */
+    private static boolean exceedsBound(double[] row, int offset, int[] order, double[] values, double limit){
+        double sum = 0.0;
+        int i = 0;
+        while(i < order.length){
+            int end = Math.min(i+8, order.length);
+            for(; i < end; i++){
+                sum += Math.abs(row[offset+order[i]]-values[i]);
+            }
+            if(sum > limit){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        return difference;
+    }
+
+    @Override
+    public boolean isMetric(){
+        return true;
+    }
+}
@@ -0,0 +1,482 @@
+package knn;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a data file by mapping it into memory and scanning the delimiters directly in the mapped bytes
+ * Numbers are parsed from the bytes without creating Strings and written straight into the primitive columns of a
+ * DatasetStore, only text values are decoded to Strings (once per value, for the dictionary of the store).
+ * Files larger than 2 GB are mapped in windows which always end at a line break.
+ * The file can also be split into chunks which are parsed in parallel (see parse(String, ExecutorService, ...)).
+ */
+public class MappedCsvParser {
+    private static final int WINDOW_SIZE = 1 << 30;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private byte delimiter;
+    private int dataBeginRowCount;
+    private boolean[] ignored;
+    private int outputColumnCount;
+
+    // Start and end offsets of the fields of the current row and their parse results
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private double[] numericRow;
+    private String[] textRow;
+    private byte[] bytes = new byte[64];
+
+    /**
+     * Creates a new parser
+     * @param delimiter the single byte which separates the attributes
+     * @param dataBeginRowCount the row number where the data in the file begins (first line = 1)
+     * @param ignoredColumns a List of all columns in ignored state (first column = 1)
+     * @param outputColumnCount the column which represents the output value (first column = 1)
+     */
+    public MappedCsvParser(byte delimiter, int dataBeginRowCount, List<Integer> ignoredColumns, int outputColumnCount){
+        this.delimiter = delimiter;
+        this.dataBeginRowCount = dataBeginRowCount;
+        this.outputColumnCount = outputColumnCount;
+        int maxColumn = outputColumnCount;
+        for(int column : ignoredColumns){
+            maxColumn = Math.max(maxColumn, column);
+        }
+        this.ignored = new boolean[maxColumn+1];
+        for(int column : ignoredColumns){
+            if(column > 0) {
+                ignored[column] = true;
+            }
+        }
+    }
+
+    /**
+     * Creates a new parser with the same settings as another parser, every thread needs its own parser
+     * @param other the MappedCsvParser whose settings should be copied
+     */
+    private MappedCsvParser(MappedCsvParser other){
+        this.delimiter = other.delimiter;
+        this.dataBeginRowCount = other.dataBeginRowCount;
+        this.ignored = other.ignored;
+        this.outputColumnCount = other.outputColumnCount;
+    }
+
+    /**
+     * Reads all rows of a data file into a new store
+     * @param filename a String representing the filename of the data file
+     * @return a DatasetStore containing all rows which match the schema of the first row
+     * @throws IOException if the file can not be read or contains a line longer than the mapping window
+     */
+    public DatasetStore parse(String filename) throws IOException {
+        return parse(filename, null, null);
+    }
+
+    /**
+     * Reads all rows of a data file into a new store, in parallel if an executor is given
+     * The file is split into line-aligned byte ranges which are parsed into separate stores on the executor. The
+     * calling thread appends the finished chunks in file order to the result and passes the new rows to the
+     * listener, while the following chunks are still being parsed. The statistics of every chunk are calculated on the
+     * executor as well.
+     * @param filename a String representing the filename of the data file
+     * @param executor an ExecutorService which parses the chunks, or null to parse the file on the calling thread
+     * @param listener an IngestListener which receives the rows after each chunk, or null
+     * @return a DatasetStore containing all rows which match the schema of the first row
+     * @throws IOException if the file can not be read or contains a line longer than the mapping window
+     */
+    public DatasetStore parse(String filename, ExecutorService executor, IngestListener listener) throws IOException {
+        DatasetStore store = new DatasetStore();
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            long length = channel.size();
+            long dataStart = findDataStart(channel);
+
+            if(executor == null){
+                parseRange(channel, dataStart, length, store);
+                notify(listener, store, 0, null);
+            }else{
+                // The first data row defines the schema of all chunks
+                long firstEnd = nextLineStart(channel, dataStart);
+                parseRange(channel, dataStart, firstEnd, store);
+                notify(listener, store, 0, null);
+
+                ArrayList<Future<DatasetStore>> chunks = new ArrayList<>();
+                ArrayList<ColumnStatistics> chunkStatistics = new ArrayList<>();
+                int parallelism = Runtime.getRuntime().availableProcessors();
+                long chunkSize = Math.max(MIN_CHUNK_SIZE, (length-firstEnd)/(parallelism*4L));
+                long from = firstEnd;
+                while(from < length){
+                    final long chunkFrom = from;
+                    final long chunkTo = nextLineStart(channel, Math.min(from+chunkSize, length)-1);
+                    final DatasetStore chunk = store.createEmptyCopy();
+                    final MappedCsvParser parser = new MappedCsvParser(this);
+                    final ColumnStatistics statistics = new ColumnStatistics();
+                    chunkStatistics.add(statistics);
+                    chunks.add(executor.submit(() -> {
+                        parser.parseRange(channel, chunkFrom, chunkTo, chunk);
+                        if(listener != null){
+                            statistics.add(chunk, 0, chunk.size());
+                        }
+                        return chunk;
+                    }));
+                    from = chunkTo;
+                }
+
+                for(int i = 0; i < chunks.size(); i++){
+                    int first = store.appendStore(waitFor(chunks.get(i)));
+                    notify(listener, store, first, chunkStatistics.get(i));
+                }
+            }
+        }
+        store.trimToSize();
+        return store;
+    }
+
+    /**
+     * Parses all lines which start in the given byte range into the store
+     * @param channel the FileChannel of the data file
+     * @param from the position of the first byte of the range, must be the start of a line
+     * @param to the position after the last byte of the range, must be the start of a line or the end of the file
+     * @param store the DatasetStore which receives the rows
+     * @throws IOException if the file can not be read or contains a line longer than the mapping window
+     */
+    private void parseRange(FileChannel channel, long from, long to, DatasetStore store) throws IOException {
+        long position = from;
+        while(position < to){
+            long windowSize = Math.min(WINDOW_SIZE, to-position);
+            boolean lastWindow = position+windowSize == to;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+
+            int lineStart = 0;
+            int limit = (int)windowSize;
+            while(lineStart < limit){
+                int lineEnd = lineStart;
+                while(lineEnd < limit && buffer.get(lineEnd) != '\n'){
+                    lineEnd++;
+                }
+                if(lineEnd == limit && !lastWindow){
+                    // The line continues in the next window
+                    break;
+                }
+                if(!isBlank(buffer, lineStart, lineEnd)){
+                    parseLine(buffer, lineStart, lineEnd, store);
+                }
+                lineStart = lineEnd+1;
+            }
+
+            if(lineStart == 0 && !lastWindow){
+                throw new IOException("Line at byte "+position+" is longer than "+WINDOW_SIZE+" bytes");
+            }
+            position += Math.min(lineStart, limit);
+        }
+    }
+
+    /**
+     * Skips all rows before the row where the data begins, empty lines are not counted
+     * @return a long containing the position of the first byte of the first data row
+     */
+    private long findDataStart(FileChannel channel) throws IOException {
+        long position = 0;
+        int skipped = 0;
+        long length = channel.size();
+        while(skipped+1 < dataBeginRowCount && position < length){
+            long next = nextLineStart(channel, position);
+            if(!isBlank(channel, position, next)){
+                skipped++;
+            }
+            position = next;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the position after the next line break at or after the given position, or the end of the file
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long length = channel.size();
+        while(position < length){
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if(read <= 0){
+                break;
+            }
+            for(int i = 0; i < read; i++){
+                if(buffer.get(i) == '\n'){
+                    return position+i+1;
+                }
+            }
+            position += read;
+        }
+        return length;
+    }
+
+    private static boolean isBlank(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(to-from, SCAN_BUFFER_SIZE));
+        long position = from;
+        while(position < to){
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), to-position));
+            int read = channel.read(buffer, position);
+            if(read <= 0){
+                break;
+            }
+            for(int i = 0; i < read; i++){
+                if((buffer.get(i) & 0xFF) > ' '){
+                    return false;
+                }
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * Passes the rows from the given one to the end of the store to the listener
+     * The statistics are calculated on the calling thread if the rows were not parsed on the executor
+     */
+    private static void notify(IngestListener listener, DatasetStore store, int fromRow, ColumnStatistics statistics){
+        if(listener != null && fromRow < store.size()){
+            if(statistics == null){
+                statistics = new ColumnStatistics();
+                statistics.add(store, fromRow, store.size());
+            }
+            listener.rowsAdded(store, fromRow, store.size(), statistics);
+        }
+    }
+
+    private static DatasetStore waitFor(Future<DatasetStore> chunk) throws IOException {
+        try {
+            return chunk.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the data file", e);
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof IOException){
+                throw (IOException)e.getCause();
+            }
+            throw new IOException("Reading a chunk of the data file failed", e.getCause());
+        }
+    }
+
+    /**
+     * Splits a line into its fields and adds it to the store if it matches the schema
+     */
+    private void parseLine(MappedByteBuffer buffer, int start, int end, DatasetStore store){
+        if(end > start && buffer.get(end-1) == '\r'){
+            end--;
+        }
+
+        // Find the field boundaries, trailing empty fields are dropped like String.split does
+        int fields = 0;
+        int fieldStart = start;
+        for(int i = start; i <= end; i++){
+            if(i == end || buffer.get(i) == delimiter){
+                if(fields == fieldStarts.length){
+                    fieldStarts = Arrays.copyOf(fieldStarts, fields*2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fields*2);
+                }
+                fieldStarts[fields] = fieldStart;
+                fieldEnds[fields] = i;
+                fields++;
+                fieldStart = i+1;
+            }
+        }
+        while(fields > 0 && fieldStarts[fields-1] == fieldEnds[fields-1]){
+            fields--;
+        }
+
+        // Trim whitespaces of all fields
+        for(int f = 0; f < fields; f++){
+            while(fieldStarts[f] < fieldEnds[f] && (buffer.get(fieldStarts[f]) & 0xFF) <= ' '){
+                fieldStarts[f]++;
+            }
+            while(fieldEnds[f] > fieldStarts[f] && (buffer.get(fieldEnds[f]-1) & 0xFF) <= ' '){
+                fieldEnds[f]--;
+            }
+        }
+
+        if(!store.hasSchema()){
+            createSchema(buffer, fields, store);
+        }
+        if(numericRow == null){
+            numericRow = new double[store.getNumericCount()];
+            textRow = new String[store.getTextCount()];
+        }
+
+        // Parse all used fields in the order of the schema
+        int attribute = 0;
+        Object label = null;
+        for(int f = 0; f < fields; f++){
+            int column = f+1;
+            if(column < ignored.length && ignored[column]){
+                continue;
+            }
+            if(attribute >= store.getAttributeCount()){
+                return;
+            }
+
+            int from = fieldStarts[f], to = fieldEnds[f];
+            double value = parseNumber(buffer, from, to);
+            if(column == outputColumnCount){
+                // Numeric outputs are stripped of at the comma for categorizing
+                label = Double.isNaN(value) ? decode(buffer, from, to) : (Object)(double)(int)Math.floor(value);
+            }else if(store.getType(attribute) == AttributeTypes.DECIMAL){
+                if(Double.isNaN(value)){
+                    return;
+                }
+                numericRow[store.getSlot(attribute)] = value;
+            }else{
+                textRow[store.getSlot(attribute)] = decode(buffer, from, to);
+            }
+            attribute++;
+        }
+        if(attribute != store.getAttributeCount()){
+            return;
+        }
+        store.appendRow(numericRow, textRow, label);
+    }
+
+    /**
+     * Defines the schema of the store by the types of the first row
+     */
+    private void createSchema(MappedByteBuffer buffer, int fields, DatasetStore store){
+        AttributeTypes[] types = new AttributeTypes[fields];
+        int count = 0;
+        int output = -1;
+        for(int f = 0; f < fields; f++){
+            int column = f+1;
+            if(column < ignored.length && ignored[column]){
+                continue;
+            }
+            if(column == outputColumnCount){
+                output = count+1;
+            }
+            boolean isNumber = !Double.isNaN(parseNumber(buffer, fieldStarts[f], fieldEnds[f]));
+            types[count++] = isNumber ? AttributeTypes.DECIMAL : AttributeTypes.TEXT;
+        }
+        store.createSchema(Arrays.copyOf(types, count), output);
+    }
+
+    /**
+     * Parses a decimal number ([+-]digits[.digits][(e|E)[+-]digits]) directly from the bytes
+     * Numbers with up to 15 significant digits and a small exponent are exactly representable as mantissa and power
+     * of ten, so a single multiplication or division is correctly rounded and gives the same result as
+     * Double.parseDouble. All other numbers fall back to Double.parseDouble.
+     * @return a double containing the value, or Double.NaN if the bytes are not a number
+     */
+    private double parseNumber(MappedByteBuffer buffer, int from, int to){
+        int i = from;
+        boolean negative = false;
+        if(i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')){
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean anyDigit = false;
+        boolean exact = true;
+        while(i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'){
+            anyDigit = true;
+            if(mantissa != 0 || buffer.get(i) != '0'){
+                digits++;
+            }
+            if(digits <= 15){
+                mantissa = mantissa*10+(buffer.get(i)-'0');
+            }else{
+                exact = false;
+            }
+            i++;
+        }
+        if(i < to && buffer.get(i) == '.'){
+            i++;
+            while(i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'){
+                anyDigit = true;
+                if(mantissa != 0 || buffer.get(i) != '0'){
+                    digits++;
+                }
+                if(digits <= 15){
+                    mantissa = mantissa*10+(buffer.get(i)-'0');
+                    scale--;
+                }else{
+                    exact = false;
+                }
+                i++;
+            }
+        }
+        if(!anyDigit){
+            return Double.NaN;
+        }
+
+        int exponent = 0;
+        if(i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')){
+            i++;
+            boolean negativeExponent = false;
+            if(i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')){
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            if(i == to){
+                return Double.NaN;
+            }
+            while(i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'){
+                exponent = Math.min(exponent*10+(buffer.get(i)-'0'), 100000);
+                i++;
+            }
+            if(negativeExponent){
+                exponent = -exponent;
+            }
+        }
+        if(i != to){
+            return Double.NaN;
+        }
+
+        int power = scale+exponent;
+        if(exact && power >= -22 && power <= 22){
+            double value = power >= 0 ? mantissa*POWERS_OF_TEN[power] : mantissa/POWERS_OF_TEN[-power];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(copy(buffer, from, to), 0, to-from, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a text value
+     */
+    private String decode(MappedByteBuffer buffer, int from, int to){
+        return new String(copy(buffer, from, to), 0, to-from, StandardCharsets.UTF_8);
+    }
+
+    private byte[] copy(MappedByteBuffer buffer, int from, int to){
+        if(bytes.length < to-from){
+            bytes = new byte[Math.max(to-from, bytes.length*2)];
+        }
+        for(int i = from; i < to; i++){
+            bytes[i-from] = buffer.get(i);
+        }
+        return bytes;
+    }
+
+    private static boolean isBlank(MappedByteBuffer buffer, int from, int to){
+        for(int i = from; i < to; i++){
+            if((buffer.get(i) & 0xFF) > ' '){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package knn;
+
+import java.util.Arrays;
+
+/**
+ * A bounded max-heap which keeps the k nearest entries offered to it
+ * Entries are identified by an index (e.g. the position in the training list); of two entries with the same distance
+ * the one with the smaller index is treated as nearer, which is the same order a stable sort would return
+ */
+public class NeighbourHeap {
+    private double[] distances;
+    private int[] indices;
+    private int size = 0;
+    private int limit;
+
+    /**
+     * Creates a new empty heap
+     * @param k an int representing the maximum number of entries
+     */
+    public NeighbourHeap(int k){
+        this.distances = new double[Math.max(k, 0)];
+        this.indices = new int[Math.max(k, 0)];
+        this.limit = Math.max(k, 0);
+    }
+
+    /**
+     * Removes all entries and changes the maximum number of entries, so one heap can be reused for many queries
+     * The arrays are only replaced if they are too small for k entries
+     * @param k an int representing the new maximum number of entries
+     */
+    public void reset(int k){
+        limit = Math.max(k, 0);
+        size = 0;
+        if(limit > distances.length){
+            distances = new double[limit];
+            indices = new int[limit];
+        }
+    }
+
+    /**
+     * Returns the number of entries in the heap
+     * @return an int containing the number of entries
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns if the heap already contains k entries
+     * @return true if no more entries can be added without removing another one
+     */
+    public boolean isFull(){
+        return size == limit;
+    }
+
+    /**
+     * Returns the distance of the farthest entry in the heap
+     * @return a double containing the largest distance, or Double.POSITIVE_INFINITY if the heap is not full yet
+     */
+    public double worstDistance(){
+        if(!isFull() || size == 0){
+            return Double.POSITIVE_INFINITY;
+        }
+        return distances[0];
+    }
+
+    /**
+     * Offers a new entry to the heap, it is only kept if it is nearer than the farthest entry
+     * @param distance the distance of the entry
+     * @param index the index of the entry
+     */
+    public void offer(double distance, int index){
+        if(limit == 0){
+            return;
+        }
+        if(isFull()){
+            if(!worse(distances[0], indices[0], distance, index)){
+                return;
+            }
+            distances[0] = distance;
+            indices[0] = index;
+            siftDown(0);
+        }else{
+            int i = size++;
+            distances[i] = distance;
+            indices[i] = index;
+            while(i > 0){
+                int parent = (i-1) >>> 1;
+                if(!worse(distances[i], indices[i], distances[parent], indices[parent])){
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the heap and returns their indices, ordered by ascending distance
+     * @return an int-array containing the indices of all entries, the nearest entry first
+     */
+    public int[] drainSorted(){
+        return drainSorted(null);
+    }
+
+    /**
+     * Removes all entries from the heap and returns their indices, ordered by ascending distance
+     * @param sortedDistances a double-array which receives the distances in the same order, or null
+     * @return an int-array containing the indices of all entries, the nearest entry first
+     */
+    public int[] drainSorted(double[] sortedDistances){
+        int count = sortInPlace();
+        if(sortedDistances != null){
+            System.arraycopy(distances, 0, sortedDistances, 0, count);
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Removes all entries from the heap and orders them by ascending distance without allocating anything
+     * Afterwards getSortedIndex(i) returns the index of the i-th nearest entry until the heap is used again
+     * @return an int containing the number of sorted entries
+     */
+    public int sortInPlace(){
+        int count = size;
+        // Heapsort: the farthest entry is moved behind the shrinking heap
+        while(size > 1){
+            size--;
+            swap(0, size);
+            siftDown(0);
+        }
+        size = 0;
+        return count;
+    }
+
+    /**
+     * Returns the index of an entry after sortInPlace
+     * @param position the position of the entry, 0 for the nearest one
+     * @return an int containing the index of the entry
+     */
+    public int getSortedIndex(int position){
+        return indices[position];
+    }
+
+    /**
+     * Returns true if the first entry is farther than the second one
+     */
+    private static boolean worse(double d1, int i1, double d2, int i2){
+        return d1 > d2 || (d1 == d2 && i1 > i2);
+    }
+
+    private void siftDown(int i){
+        while(true){
+            int child = 2*i+1;
+            if(child >= size){
+                return;
+            }
+            if(child+1 < size && worse(distances[child+1], indices[child+1], distances[child], indices[child])){
+                child++;
+            }
+            if(!worse(distances[child], indices[child], distances[i], indices[i])){
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b){
+        double d = distances[a];
+        distances[a] = distances[b];
+        distances[b] = d;
+        int idx = indices[a];
+        indices[a] = indices[b];
+        indices[b] = idx;
+    }
+}
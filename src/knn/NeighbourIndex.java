@@ -0,0 +1,54 @@
+package knn;
+
+import java.util.ArrayList;
+
+/**
+ * An index over a list of training datasets which finds the k nearest neighbours of a candidate
+ */
+public interface NeighbourIndex {
+
+    /**
+     * Returns the k nearest neighbours of the candidate of a comparator, ordered by ascending distance
+     * Datasets with the same distance are ordered by their position in the training list
+     * @param cmp the comparator which measures the distances to the candidate
+     * @param k the number of neighbours
+     * @return an ArrayList of Dataset instances containing at most k neighbours
+     */
+    ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k);
+
+    /**
+     * Writes the k nearest neighbours of the candidate of a comparator into an array, ordered by ascending distance
+     * The exact indexes search with buffers of the calling thread, so they allocate nothing once these are warmed up
+     * @param cmp the comparator which measures the distances to the candidate
+     * @param k the number of neighbours
+     * @param result a Dataset-Array with at least min(k, size()) entries which receives the neighbours
+     * @return an int containing the number of neighbours
+     */
+    default int nearest(DatasetEuklidianComparator cmp, int k, Dataset[] result){
+        ArrayList<Dataset> found = nearest(cmp, k);
+        for(int i = 0; i < found.size(); i++){
+            result[i] = found.get(i);
+        }
+        return found.size();
+    }
+
+    /**
+     * Returns the number of datasets in this index
+     * @return an int containing the number of datasets
+     */
+    int size();
+
+    /**
+     * Collects the first entries of an array in a new list, e.g. the result of nearest(cmp, k, result)
+     * @param datasets a Dataset-Array
+     * @param count the number of entries which should be collected
+     * @return an ArrayList of Dataset instances
+     */
+    static ArrayList<Dataset> toList(Dataset[] datasets, int count){
+        ArrayList<Dataset> list = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            list.add(datasets[i]);
+        }
+        return list;
+    }
+}
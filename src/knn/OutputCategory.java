@@ -0,0 +1,163 @@
+package knn;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Represents a single possible category in the output column
+ * The category only keeps the row numbers of its datasets, the values stay in the DatasetStore
+ */
+public class OutputCategory {
+    private DatasetStore store;
+    private int[] rows = new int[16];
+    private int size = 0;
+    private Attribute categoryValue;
+    // Rows of the store which are part of this category, so adding a dataset twice is detected without a search
+    private BitSet members = new BitSet();
+    // Position of every row in the rows array plus one, only created when the first dataset is removed
+    private int[] positions;
+
+    /**
+     * Creates a new OutputCategory instance and sets the value of this category to a given attribute
+     * @param value the output attribute value of this category
+     */
+    public OutputCategory(Attribute value){
+        this.categoryValue = value;
+    }
+
+    /**
+     * Creates a new OutputCategory instance which already contains the given rows, e.g. when loading a snapshot
+     * @param value the output attribute value of this category
+     * @param store the DatasetStore which contains the rows
+     * @param rows an int-array containing the row numbers of the datasets, the array is used directly
+     */
+    OutputCategory(Attribute value, DatasetStore store, int[] rows){
+        this.categoryValue = value;
+        this.store = store;
+        this.rows = rows.length == 0 ? new int[16] : rows;
+        this.size = rows.length;
+        for(int row : rows){
+            members.set(row);
+        }
+    }
+
+    /**
+     * Adds a new Dataset to this category
+     * @param dataset the Dataset instance which should be added, all datasets of a category must share one store
+     */
+    public void addDataset(Dataset dataset){
+        if(store == null){
+            store = dataset.getStore();
+        }else if(store != dataset.getStore()){
+            throw new IllegalArgumentException("All datasets of a category must be part of the same store");
+        }
+
+        int row = dataset.getRow();
+        if(members.get(row)){
+            return;
+        }
+        if(size == rows.length){
+            rows = Arrays.copyOf(rows, size*2);
+        }
+        rows[size] = row;
+        members.set(row);
+        if(positions != null){
+            setPosition(row, size);
+        }
+        size++;
+    }
+
+    /**
+     * Removes a Dataset from this category
+     * The last dataset of the category takes the place of the removed one, so the order of the datasets changes
+     * @param dataset the Dataset instance which should be removed
+     * @return true if the dataset was part of this category
+     */
+    public boolean removeDataset(Dataset dataset){
+        if(!contains(dataset)){
+            return false;
+        }
+        if(positions == null){
+            positions = new int[0];
+            for(int i = 0; i < size; i++){
+                setPosition(rows[i], i);
+            }
+        }
+
+        int row = dataset.getRow();
+        int position = positions[row]-1;
+        int last = rows[--size];
+        rows[position] = last;
+        setPosition(last, position);
+        positions[row] = 0;
+        members.clear(row);
+        return true;
+    }
+
+    /**
+     * Checks if a Dataset is part of this category
+     * @param dataset the Dataset instance which should be checked
+     * @return true if the dataset was added and not removed afterwards
+     */
+    public boolean contains(Dataset dataset){
+        return store == dataset.getStore() && members.get(dataset.getRow());
+    }
+
+    /**
+     * Returns the value of the category
+     * @return an Attribute object representing the category value
+     */
+    public Attribute getCategoryValue() {
+        return categoryValue;
+    }
+
+    /**
+     * Returns the size of the Dataset List of this category
+     * @return an int representing the number of datasets in this category
+     */
+    public int getDatasetNumber(){
+        return size;
+    }
+
+    /**
+     * Returns a single dataset in this category by index
+     * @param index the index of the desired dataset
+     * @return a Dataset instance representing the desired dataset
+     */
+    public Dataset getDataset(int index){
+        if(size > index && index >= 0) {
+            return store.getDataset(rows[index]);
+        }
+        return null;
+    }
+
+    /**
+     * Randomizes the order of the datasets in this category
+     * @param random the Random instance which should be used
+     */
+    public void shuffle(Random random){
+        for(int i = size-1; i > 0; i--){
+            int j = random.nextInt(i+1);
+            int tmp = rows[i];
+            rows[i] = rows[j];
+            rows[j] = tmp;
+        }
+        positions = null;
+    }
+
+    /**
+     * Returns the row numbers of the datasets in this category
+     * @return an int-array containing a copy of the row numbers
+     */
+    int[] getRows(){
+        return Arrays.copyOf(rows, size);
+    }
+
+    private void setPosition(int row, int position){
+        if(row >= positions.length){
+            positions = Arrays.copyOf(positions, Math.max(row+1, positions.length*2));
+        }
+        positions[row] = position+1;
+    }
+}
@@ -0,0 +1,141 @@
+package knn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Caches the distance between every pair of rows of a DatasetStore in a packed triangular matrix
+ * Every distance is calculated only once, all passes of a k fold cross validation (and all following runs on the
+ * same data, e.g. with a different k) then only look the distances up. The distances are stored as doubles, so
+ * the neighbours are exactly the same as without the cache.
+ */
+public class PairwiseDistanceCache {
+    private DatasetStore store;
+    private double[] distances;
+
+    /**
+     * Creates a new cache and calculates the distances of all pairs of rows
+     * @param store the DatasetStore whose rows should be cached
+     * @param metric the DistanceMetric which calculates the distance of the numeric attributes
+     * @param executor an ExecutorService which calculates the rows in parallel, or null for the calling thread
+     */
+    public PairwiseDistanceCache(DatasetStore store, DistanceMetric metric, ExecutorService executor){
+        this.store = store;
+        int n = store.size();
+        this.distances = new double[(int)requiredEntries(n)];
+
+        // Row i holds the distances to all rows j < i, split the rows into tasks of about the same size
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        int from = 1;
+        long entriesPerTask = Math.max(1, requiredEntries(n)/64);
+        while(from < n){
+            int to = from;
+            long entries = 0;
+            while(to < n && entries < entriesPerTask){
+                entries += to;
+                to++;
+            }
+            final int taskFrom = from, taskTo = to;
+            tasks.add(() -> {
+                calculateRows(metric, taskFrom, taskTo);
+                return null;
+            });
+            from = to;
+        }
+
+        try {
+            if (executor == null) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+            } else {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating distances", e);
+        }catch(Exception e){
+            throw new IllegalStateException("Calculating distances failed", e);
+        }
+    }
+
+    /**
+     * Checks if the cache for a store with the given number of rows fits into an array and into a quarter of the heap
+     * @param rows the number of rows in the store
+     * @return true if the cache can be created
+     */
+    public static boolean fits(int rows){
+        long entries = requiredEntries(rows);
+        return entries < Integer.MAX_VALUE-8 && entries*8 < Runtime.getRuntime().maxMemory()/4;
+    }
+
+    /**
+     * Returns if this cache contains the distances of the given store
+     * @param store a DatasetStore instance
+     * @return true if the cache was built over this store
+     */
+    public boolean covers(DatasetStore store){
+        return this.store == store;
+    }
+
+    /**
+     * Returns the cached distance between two rows
+     * @param row1 the index of the first row in the store
+     * @param row2 the index of the second row in the store
+     * @return a double containing the distance
+     */
+    public double distance(int row1, int row2){
+        if(row1 == row2){
+            return 0.0;
+        }
+        if(row1 < row2){
+            int tmp = row1;
+            row1 = row2;
+            row2 = tmp;
+        }
+        return distances[(int)((long)row1*(row1-1)/2+row2)];
+    }
+
+    /**
+     * Returns the k nearest neighbours of the candidate in the training list by looking up the cached distances
+     * @param candidate the dataset whose neighbours should be found, must be part of the cached store
+     * @param train a List of Dataset instances which should be searched, must be part of the cached store
+     * @param k the number of neighbours
+     * @return an ArrayList of Dataset instances containing the k nearest neighbours, the nearest one first
+     */
+    public ArrayList<Dataset> nearest(Dataset candidate, List<Dataset> train, int k){
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.size()));
+        int row = candidate.getRow();
+        for(int i = 0; i < train.size(); i++){
+            heap.offer(distance(row, train.get(i).getRow()), i);
+        }
+
+        ArrayList<Dataset> neighbours = new ArrayList<>();
+        for(int index : heap.drainSorted()){
+            neighbours.add(train.get(index));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Calculates the distances of the rows from (inclusive) to (exclusive) to all rows before them
+     */
+    private void calculateRows(DistanceMetric metric, int from, int to){
+        for(int i = from; i < to; i++){
+            DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(store.getDataset(i), metric);
+            long offset = (long)i*(i-1)/2;
+            for(int j = 0; j < i; j++){
+                distances[(int)(offset+j)] = cmp.distance(store.getDataset(j));
+            }
+        }
+    }
+
+    private static long requiredEntries(int rows){
+        return (long)rows*(rows-1)/2;
+    }
+}
@@ -0,0 +1,13 @@
+package knn;
+
+/**
+ * The available compact encodings of the numeric attributes which the exhaustive search scans (see QuantizedScan)
+ */
+public enum Quantization {
+    // Scan the double values of the store
+    NONE,
+    // 4 bytes per value
+    FLOAT32,
+    // 1 byte per value on 256 steps between the minimum and the maximum of each attribute
+    INT8
+}
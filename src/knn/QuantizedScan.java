@@ -0,0 +1,263 @@
+package knn;
+
+import java.util.ArrayList;
+
+/**
+ * An exhaustive search over a compact copy of the numeric attributes of the training datasets
+ * The numeric attributes are encoded as floats or as one byte per value on an evenly spaced grid between the
+ * minimum and the maximum of each attribute, which needs a half or an eighth of the memory bandwidth of the doubles.
+ * The scan calculates the distances to the encoded datasets and keeps a short list of the nearest ones, which is
+ * re-ranked with the exact distance. The exact distance of a dataset differs from the encoded one by at most the
+ * distance between the dataset and its encoding, so afterwards every other dataset which could still be nearer than the
+ * k-th neighbour is re-ranked as well and the result is exactly the same as the one of the exhaustive search.
+ */
+public class QuantizedScan implements NeighbourIndex {
+    // Number of datasets which are re-ranked first, relative to k
+    private static final int SHORTLIST_FACTOR = 8;
+    private static final int MIN_SHORTLIST = 64;
+    // The encoded distances are calculated in another way than the exact distances, so the encoding errors are
+    // enlarged and the distances are compared with some slack, which covers the rounding errors of the calculation
+    private static final double BOUND_SLACK = 1e-9;
+
+    // Buffers of the scans, reused by all queries of a thread
+    private static final ThreadLocal<double[]> DISTANCES = ThreadLocal.withInitial(() -> new double[0]);
+    private static final ThreadLocal<double[]> POSITIONS = ThreadLocal.withInitial(() -> new double[0]);
+    private static final ThreadLocal<NeighbourHeap> SHORTLISTS = ThreadLocal.withInitial(() -> new NeighbourHeap(0));
+    private static final ThreadLocal<NeighbourHeap> HEAPS = ThreadLocal.withInitial(() -> new NeighbourHeap(0));
+
+    private ArrayList<Dataset> train;
+    private Quantization quantization;
+    private int dimensions;
+    private float[] floatCodes;
+    private byte[] byteCodes;
+    private double[] lower;
+    private double[] step;
+    private double[] weight;
+    private float[] rowErrors;
+
+    /**
+     * Creates a new quantized scan over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be searched, the list must not be changed afterwards
+     * @param quantization the encoding of the numeric attributes, FLOAT32 or INT8
+     * @param statistics the ColumnStatistics whose minimum and maximum define the grid of INT8, or null to use the
+     *                   values of the training datasets
+     */
+    public QuantizedScan(ArrayList<Dataset> train, Quantization quantization, ColumnStatistics statistics){
+        this.train = train;
+        this.quantization = quantization;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+        this.rowErrors = new float[train.size()];
+
+        if(quantization == Quantization.INT8){
+            encodeBytes(statistics);
+        }else{
+            encodeFloats();
+        }
+    }
+
+    /**
+     * Encodes the numeric attributes as floats
+     */
+    private void encodeFloats(){
+        floatCodes = new float[train.size()*dimensions];
+        for(int i = 0; i < train.size(); i++){
+            Dataset dataset = train.get(i);
+            double[] block = dataset.getStore().getNumericBlock();
+            int offset = dataset.getRow()*dimensions;
+            double error = 0.0;
+            for(int a = 0; a < dimensions; a++){
+                float code = (float)block[offset+a];
+                floatCodes[i*dimensions+a] = code;
+                error += (block[offset+a]-code)*(block[offset+a]-code);
+            }
+            setRowError(i, error);
+        }
+    }
+
+    /**
+     * Encodes the numeric attributes as the nearest of 256 steps between the minimum and the maximum
+     * Values outside of the range are clamped, which only makes the encoding error of the dataset larger
+     */
+    private void encodeBytes(ColumnStatistics statistics){
+        lower = new double[dimensions];
+        step = new double[dimensions];
+        weight = new double[dimensions];
+        boolean useStatistics = statistics != null && statistics.getDimensions() == dimensions
+                && statistics.getCount() > 0;
+        for(int a = 0; a < dimensions; a++){
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            if(useStatistics){
+                min = statistics.getMin(a);
+                max = statistics.getMax(a);
+            }else{
+                for(Dataset dataset : train){
+                    double v = dataset.getStore().getNumeric(dataset.getRow(), a);
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+            }
+            lower[a] = train.isEmpty() ? 0.0 : min;
+            step[a] = max > min ? (max-min)/255.0 : 1.0;
+            weight[a] = step[a]*step[a];
+        }
+
+        byteCodes = new byte[train.size()*dimensions];
+        for(int i = 0; i < train.size(); i++){
+            Dataset dataset = train.get(i);
+            double[] block = dataset.getStore().getNumericBlock();
+            int offset = dataset.getRow()*dimensions;
+            double error = 0.0;
+            for(int a = 0; a < dimensions; a++){
+                long code = Math.round((block[offset+a]-lower[a])/step[a]);
+                code = Math.max(0, Math.min(255, code));
+                byteCodes[i*dimensions+a] = (byte)code;
+                double diff = block[offset+a]-(lower[a]+code*step[a]);
+                error += diff*diff;
+            }
+            setRowError(i, error);
+        }
+    }
+
+    /**
+     * Stores the distance between a dataset and its encoding, rounded up
+     */
+    private void setRowError(int index, double squaredError){
+        float error = (float)(Math.sqrt(squaredError)*(1+BOUND_SLACK));
+        rowErrors[index] = squaredError == 0.0 ? 0.0f : Math.nextUp(error);
+    }
+
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        Dataset[] result = new Dataset[Math.max(0, Math.min(k, train.size()))];
+        return NeighbourIndex.toList(result, nearest(cmp, k, result));
+    }
+
+    @Override
+    public int nearest(DatasetEuklidianComparator cmp, int k, Dataset[] result){
+        double[] candidate = cmp.getCandidateNumeric();
+        if(k <= 0 || train.isEmpty() || candidate.length != dimensions){
+            return 0;
+        }
+
+        // Squared distances to the encoded datasets, the shortlist keeps the nearest ones
+        double[] distances = DISTANCES.get();
+        if(distances.length < train.size()){
+            distances = new double[train.size()];
+            DISTANCES.set(distances);
+        }
+        NeighbourHeap shortlist = SHORTLISTS.get();
+        shortlist.reset(Math.min(Math.max(k*SHORTLIST_FACTOR, MIN_SHORTLIST), train.size()));
+        if(quantization == Quantization.INT8){
+            scanBytes(candidate, distances, shortlist);
+        }else{
+            scanFloats(candidate, distances, shortlist);
+        }
+
+        // Re-rank the shortlist, then every other dataset which could still be nearer than the k-th neighbour
+        NeighbourHeap heap = HEAPS.get();
+        heap.reset(Math.min(k, train.size()));
+        int shortlisted = shortlist.sortInPlace();
+        for(int i = 0; i < shortlisted; i++){
+            int index = shortlist.getSortedIndex(i);
+            heap.offer(cmp.distance(train.get(index), heap.worstDistance()), index);
+            distances[index] = Double.POSITIVE_INFINITY;
+        }
+        for(int i = 0; i < train.size(); i++){
+            double limit = heap.worstDistance()+rowErrors[i];
+            if(distances[i] <= limit*limit*(1+BOUND_SLACK)){
+                heap.offer(cmp.distance(train.get(i), heap.worstDistance()), i);
+            }
+        }
+
+        int count = heap.sortInPlace();
+        for(int i = 0; i < count; i++){
+            result[i] = train.get(heap.getSortedIndex(i));
+        }
+        return count;
+    }
+
+    /**
+     * Calculates the squared distances to the float codes
+     * A dataset is abandoned as soon as it can't be part of the shortlist, its distance is then the partial sum which
+     * is still a lower bound of the distance
+     */
+    private void scanFloats(double[] candidate, double[] distances, NeighbourHeap shortlist){
+        for(int i = 0; i < train.size(); i++){
+            int offset = i*dimensions;
+            double limit = shortlist.worstDistance();
+            double sum = 0.0;
+            int a = 0;
+            for(; a+8 <= dimensions && sum <= limit; a += 8){
+                double d0 = candidate[a]-floatCodes[offset+a];
+                double d1 = candidate[a+1]-floatCodes[offset+a+1];
+                double d2 = candidate[a+2]-floatCodes[offset+a+2];
+                double d3 = candidate[a+3]-floatCodes[offset+a+3];
+                double d4 = candidate[a+4]-floatCodes[offset+a+4];
+                double d5 = candidate[a+5]-floatCodes[offset+a+5];
+                double d6 = candidate[a+6]-floatCodes[offset+a+6];
+                double d7 = candidate[a+7]-floatCodes[offset+a+7];
+                sum += (d0*d0+d1*d1)+(d2*d2+d3*d3)+((d4*d4+d5*d5)+(d6*d6+d7*d7));
+            }
+            if(sum <= limit){
+                for(; a < dimensions; a++){
+                    double diff = candidate[a]-floatCodes[offset+a];
+                    sum += diff*diff;
+                }
+                shortlist.offer(sum, i);
+            }
+            distances[i] = sum;
+        }
+    }
+
+    /**
+     * Calculates the squared distances to the byte codes
+     * The candidate is converted to the grid once, so the loop only works with steps. Like for the floats a dataset
+     * is abandoned as soon as it can't be part of the shortlist.
+     */
+    private void scanBytes(double[] candidate, double[] distances, NeighbourHeap shortlist){
+        double[] position = POSITIONS.get();
+        if(position.length < dimensions){
+            position = new double[dimensions];
+            POSITIONS.set(position);
+        }
+        double[] weight = this.weight;
+        for(int a = 0; a < dimensions; a++){
+            position[a] = (candidate[a]-lower[a])/step[a];
+        }
+        for(int i = 0; i < train.size(); i++){
+            int offset = i*dimensions;
+            double limit = shortlist.worstDistance();
+            double sum = 0.0;
+            int a = 0;
+            for(; a+4 <= dimensions && sum <= limit; a += 4){
+                double d0 = position[a]-(byteCodes[offset+a] & 0xFF);
+                double d1 = position[a+1]-(byteCodes[offset+a+1] & 0xFF);
+                double d2 = position[a+2]-(byteCodes[offset+a+2] & 0xFF);
+                double d3 = position[a+3]-(byteCodes[offset+a+3] & 0xFF);
+                sum += (d0*d0*weight[a]+d1*d1*weight[a+1])+(d2*d2*weight[a+2]+d3*d3*weight[a+3]);
+            }
+            if(sum <= limit){
+                for(; a < dimensions; a++){
+                    double diff = position[a]-(byteCodes[offset+a] & 0xFF);
+                    sum += diff*diff*weight[a];
+                }
+                shortlist.offer(sum, i);
+            }
+            distances[i] = sum;
+        }
+    }
+
+    @Override
+    public int size(){
+        return train.size();
+    }
+
+    /**
+     * Returns the number of bytes of the encoded numeric attributes
+     * @return a long containing the size of the codes
+     */
+    public long getCodeBytes(){
+        return quantization == Quantization.INT8 ? (long)byteCodes.length : 4L*floatCodes.length;
+    }
+}
@@ -0,0 +1,397 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An approximate index over the numeric attributes of a list of training datasets (random projection forest)
+ * Every tree splits its datasets at the median of their projection onto the line through two random datasets,
+ * until a leaf contains at most leafSize datasets. The trees are independent of each other, so they are built
+ * in parallel and are much cheaper to build than a HnswIndex. A query visits the leaves of all trees ordered by
+ * the distance to the splitting hyperplanes on the way, until enough candidates are collected. Only the candidates
+ * are ranked by the real distance (including text attributes), so the result can miss exact nearest neighbours.
+ */
+public class RpForest implements NeighbourIndex {
+    private ArrayList<Dataset> train;
+    private int dimensions;
+    private double[] points;
+    private int leafSize;
+    private int searchCandidates;
+    private Tree[] trees;
+
+    private ThreadLocal<SearchState> searchStates = new ThreadLocal<>();
+
+    /**
+     * Creates a new forest over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be indexed, the list must not be changed afterwards
+     * @param treeCount the number of trees
+     * @param leafSize the maximum number of datasets in a leaf
+     * @param searchCandidates the number of candidates which are ranked for a query (at least k)
+     * @param executor an ExecutorService which builds the trees in parallel, or null
+     */
+    public RpForest(ArrayList<Dataset> train, int treeCount, int leafSize, int searchCandidates,
+                    ExecutorService executor){
+        this.train = train;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+        this.points = copyPoints(train, dimensions);
+        this.leafSize = Math.max(leafSize, 1);
+        this.searchCandidates = Math.max(searchCandidates, 1);
+        this.trees = new Tree[Math.max(treeCount, 1)];
+
+        // Every tree has its own seed, so the forest is the same no matter how the trees are scheduled
+        ArrayList<Callable<Tree>> tasks = new ArrayList<>();
+        for(int t = 0; t < trees.length; t++){
+            final Random random = new Random(31L*train.size()+t);
+            tasks.add(() -> buildTree(random));
+        }
+        try {
+            if(executor == null){
+                for(int t = 0; t < trees.length; t++){
+                    trees[t] = tasks.get(t).call();
+                }
+            }else{
+                List<Future<Tree>> futures = executor.invokeAll(tasks);
+                for(int t = 0; t < trees.length; t++){
+                    trees[t] = futures.get(t).get();
+                }
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the random projection trees", e);
+        }catch(ExecutionException e){
+            throw new IllegalStateException("Building a random projection tree failed", e.getCause());
+        }catch(Exception e){
+            throw new IllegalStateException("Building a random projection tree failed", e);
+        }
+    }
+
+    /**
+     * Restores a forest which was written by writeSnapshot over the same training datasets
+     * @param train an ArrayList of Dataset instances in the same order as when the forest was built
+     * @param in a ByteBuffer positioned at the start of the forest
+     */
+    RpForest(ArrayList<Dataset> train, ByteBuffer in){
+        this.train = train;
+        this.dimensions = train.isEmpty() ? 0 : train.get(0).getStore().getNumericCount();
+        this.points = copyPoints(train, dimensions);
+        this.leafSize = in.getInt();
+        this.searchCandidates = in.getInt();
+        this.trees = new Tree[in.getInt()];
+        for(int t = 0; t < trees.length; t++){
+            trees[t] = new Tree(in);
+        }
+    }
+
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        ArrayList<Dataset> result = new ArrayList<>();
+        if(k <= 0 || train.isEmpty()){
+            return result;
+        }
+
+        Dataset candidate = cmp.getCandidate();
+        double[] query = new double[dimensions];
+        for(int a = 0; a < dimensions; a++){
+            query[a] = candidate.getStore().getNumeric(candidate.getRow(), a);
+        }
+
+        // The queue is a min-heap, so the priorities (distance to the nearest hyperplane on the way) are negated
+        SearchState state = searchState();
+        CandidateQueue queue = state.queue;
+        queue.clear();
+        for(int t = 0; t < trees.length; t++){
+            queue.add(Double.NEGATIVE_INFINITY, t);
+        }
+
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.size()));
+        int wanted = Math.max(searchCandidates, k);
+        int ranked = 0;
+        while(!queue.isEmpty() && ranked < wanted){
+            double priority = -queue.peekDistance();
+            int code = queue.poll();
+            Tree tree = trees[code%trees.length];
+            int node = code/trees.length;
+
+            if(tree.isLeaf(node)){
+                for(int i = tree.from[node]; i < tree.to[node]; i++){
+                    int index = tree.order[i];
+                    if(state.visit(index)){
+                        heap.offer(cmp.distance(train.get(index), heap.worstDistance()), index);
+                        ranked++;
+                    }
+                }
+            }else{
+                double margin = project(query, 0, tree, node) - tree.thresholds[node];
+                queue.add(-Math.min(priority, -margin), tree.left[node]*trees.length+code%trees.length);
+                queue.add(-Math.min(priority, margin), tree.right[node]*trees.length+code%trees.length);
+            }
+        }
+
+        for(int index : heap.drainSorted()){
+            result.add(train.get(index));
+        }
+        return result;
+    }
+
+    @Override
+    public int size(){
+        return train.size();
+    }
+
+    /**
+     * Sets the number of candidates which are ranked for a query, this doesn't change the trees
+     * @param searchCandidates an int representing the number of candidates (at least k are ranked)
+     */
+    public void setSearchCandidates(int searchCandidates){
+        this.searchCandidates = Math.max(searchCandidates, 1);
+    }
+
+    /**
+     * Writes the trees of the forest to a snapshot, the coordinates are taken from the store again when loading
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        out.writeInt(leafSize);
+        out.writeInt(searchCandidates);
+        out.writeInt(trees.length);
+        for(Tree tree : trees){
+            tree.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Builds a single tree over all training datasets
+     */
+    private Tree buildTree(Random random){
+        Tree tree = new Tree(train.size(), leafSize);
+        split(tree, new double[train.size()], random, 0, train.size());
+        tree.trim();
+        return tree;
+    }
+
+    /**
+     * Recursively splits the given range of the order array at the median projection onto a random direction
+     * @return an int containing the index of the new node
+     */
+    private int split(Tree tree, double[] projections, Random random, int from, int to){
+        int node = tree.addNode(from, to);
+        if(to-from <= leafSize || dimensions == 0){
+            return node;
+        }
+
+        // The direction is the difference of two random datasets, datasets at the same position are no direction
+        for(int attempt = 0; attempt < 3 && tree.isLeaf(node); attempt++){
+            int a = tree.order[from+random.nextInt(to-from)];
+            int b = tree.order[from+random.nextInt(to-from)];
+            double norm = 0.0;
+            for(int d = 0; d < dimensions; d++){
+                double diff = points[a*dimensions+d]-points[b*dimensions+d];
+                norm += diff*diff;
+            }
+            if(norm > 0.0){
+                tree.pointA[node] = a;
+                tree.pointB[node] = b;
+                tree.inverseNorms[node] = 1.0/Math.sqrt(norm);
+            }
+        }
+        if(tree.isLeaf(node)){
+            return node;
+        }
+
+        for(int i = from; i < to; i++){
+            projections[i] = project(points, tree.order[i]*dimensions, tree, node);
+        }
+        int median = (from+to) >>> 1;
+        select(tree.order, projections, from, to-1, median);
+        tree.thresholds[node] = projections[median];
+
+        int left = split(tree, projections, random, from, median);
+        int right = split(tree, projections, random, median, to);
+        tree.left[node] = left;
+        tree.right[node] = right;
+        return node;
+    }
+
+    /**
+     * Returns the position of a vector along the direction of a node
+     */
+    private double project(double[] vector, int offset, Tree tree, int node){
+        int a = tree.pointA[node]*dimensions;
+        int b = tree.pointB[node]*dimensions;
+        double sum = 0.0;
+        for(int d = 0; d < dimensions; d++){
+            sum += vector[offset+d]*(points[a+d]-points[b+d]);
+        }
+        return sum*tree.inverseNorms[node];
+    }
+
+    /**
+     * Partially sorts the given range by the projections (quickselect), so the median is at its final position
+     * The projections are stored by position and are swapped together with the order array
+     */
+    private static void select(int[] order, double[] projections, int left, int right, int nth){
+        while(right > left){
+            double pivot = projections[(left+right) >>> 1];
+            int i = left, j = right;
+            while(i <= j){
+                while(projections[i] < pivot) i++;
+                while(projections[j] > pivot) j--;
+                if(i <= j){
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    double p = projections[i];
+                    projections[i] = projections[j];
+                    projections[j] = p;
+                    i++;
+                    j--;
+                }
+            }
+            if(nth <= j){
+                right = j;
+            }else if(nth >= i){
+                left = i;
+            }else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies all coordinates in training list order into one flat array
+     */
+    private static double[] copyPoints(ArrayList<Dataset> train, int dimensions){
+        double[] points = new double[train.size()*dimensions];
+        for(int i = 0; i < train.size(); i++){
+            Dataset d = train.get(i);
+            System.arraycopy(d.getStore().getNumericBlock(), d.getRow()*dimensions, points, i*dimensions, dimensions);
+        }
+        return points;
+    }
+
+    private SearchState searchState(){
+        SearchState state = searchStates.get();
+        if(state == null || state.marks.length < train.size()){
+            state = new SearchState(train.size());
+            searchStates.set(state);
+        }
+        state.generation++;
+        if(state.generation == Integer.MAX_VALUE){
+            Arrays.fill(state.marks, 0);
+            state.generation = 1;
+        }
+        return state;
+    }
+
+    /**
+     * The queue and the marks of the already ranked datasets, which are reused by all searches of one thread
+     */
+    private static class SearchState {
+        private CandidateQueue queue = new CandidateQueue();
+        private int[] marks;
+        private int generation = 0;
+
+        SearchState(int size){
+            marks = new int[size];
+        }
+
+        /**
+         * Returns true if the dataset was not ranked by the current search yet and marks it
+         */
+        boolean visit(int index){
+            if(marks[index] == generation){
+                return false;
+            }
+            marks[index] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * The nodes of a single tree, a node without direction (pointA = -1) is a leaf
+     */
+    private static class Tree {
+        private int[] order;
+        private int nodeCount = 0;
+        private int[] from;
+        private int[] to;
+        private int[] left;
+        private int[] right;
+        private int[] pointA;
+        private int[] pointB;
+        private double[] inverseNorms;
+        private double[] thresholds;
+
+        Tree(int size, int leafSize){
+            order = new int[size];
+            for(int i = 0; i < size; i++){
+                order[i] = i;
+            }
+            allocate(Math.max(16, 4*size/leafSize));
+        }
+
+        Tree(ByteBuffer in){
+            order = SnapshotIO.readInts(in);
+            from = SnapshotIO.readInts(in);
+            to = SnapshotIO.readInts(in);
+            left = SnapshotIO.readInts(in);
+            right = SnapshotIO.readInts(in);
+            pointA = SnapshotIO.readInts(in);
+            pointB = SnapshotIO.readInts(in);
+            inverseNorms = SnapshotIO.readDoubles(in);
+            thresholds = SnapshotIO.readDoubles(in);
+            nodeCount = from.length;
+        }
+
+        int addNode(int rangeFrom, int rangeTo){
+            if(nodeCount == from.length){
+                allocate(nodeCount*2);
+            }
+            from[nodeCount] = rangeFrom;
+            to[nodeCount] = rangeTo;
+            pointA[nodeCount] = -1;
+            return nodeCount++;
+        }
+
+        boolean isLeaf(int node){
+            return pointA[node] < 0;
+        }
+
+        void trim(){
+            allocate(nodeCount);
+        }
+
+        void writeSnapshot(DataOutputStream out) throws IOException {
+            SnapshotIO.writeInts(out, order, order.length);
+            SnapshotIO.writeInts(out, from, nodeCount);
+            SnapshotIO.writeInts(out, to, nodeCount);
+            SnapshotIO.writeInts(out, left, nodeCount);
+            SnapshotIO.writeInts(out, right, nodeCount);
+            SnapshotIO.writeInts(out, pointA, nodeCount);
+            SnapshotIO.writeInts(out, pointB, nodeCount);
+            SnapshotIO.writeDoubles(out, inverseNorms, nodeCount);
+            SnapshotIO.writeDoubles(out, thresholds, nodeCount);
+        }
+
+        private void allocate(int capacity){
+            from = from == null ? new int[capacity] : Arrays.copyOf(from, capacity);
+            to = to == null ? new int[capacity] : Arrays.copyOf(to, capacity);
+            left = left == null ? new int[capacity] : Arrays.copyOf(left, capacity);
+            right = right == null ? new int[capacity] : Arrays.copyOf(right, capacity);
+            pointA = pointA == null ? new int[capacity] : Arrays.copyOf(pointA, capacity);
+            pointB = pointB == null ? new int[capacity] : Arrays.copyOf(pointB, capacity);
+            inverseNorms = inverseNorms == null ? new double[capacity] : Arrays.copyOf(inverseNorms, capacity);
+            thresholds = thresholds == null ? new double[capacity] : Arrays.copyOf(thresholds, capacity);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package knn;
+
+/**
+ * Calculates the squared Euklidian distance one value after another
+ * The values are summed up in attribute order, so the result is always the same for the same rows
+ */
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    /**
+     * Creates a new instance of the scalar kernel
+     */
+    public ScalarDistanceKernel(){
+    }
+
+    @Override
+    public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length){
+        double sum = 0.0;
+        for(int i = 0; i < length; i++){
+            double diff = a[aOffset+i]-b[bOffset+i];
+            sum += diff*diff;
+        }
+        return sum;
+    }
+}
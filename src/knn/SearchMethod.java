@@ -0,0 +1,13 @@
+package knn;
+
+/**
+ * The available methods for finding the nearest neighbours of a dataset
+ */
+public enum SearchMethod {
+    EXHAUSTIVE,
+    KD_TREE,
+    VP_TREE,
+    // Approximate searches, the neighbours can differ from the exact methods
+    HNSW,
+    RP_FOREST
+}
@@ -0,0 +1,117 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for the binary snapshot format of a KnnClassifier
+ * A snapshot starts with a magic number and a format version, followed by the sections written by the classifier.
+ * All values are big-endian, arrays are written with their length in front, so they can be copied in one bulk
+ * operation from the memory mapped file when the snapshot is loaded.
+ */
+class SnapshotIO {
+    static final int MAGIC = 0x4B4E4E53; // "KNNS"
+    // Version 2 added the mean and the variance to the statistics, version 3 the metric which built the index,
+    // version 4 replaced k by the format of the data file
+    static final int VERSION = 4;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SnapshotIO(){
+    }
+
+    /**
+     * Maps a snapshot file into memory and checks its header
+     * @param filename a String representing the filename of the snapshot
+     * @return a ByteBuffer positioned after the header
+     * @throws IOException if the file can not be read, is larger than 2 GB or is no snapshot of this version
+     */
+    static ByteBuffer map(String filename) throws IOException {
+        try(RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()){
+            if(channel.size() > Integer.MAX_VALUE){
+                throw new IOException("The snapshot "+filename+" is larger than 2 GB");
+            }
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(in.remaining() < 8 || in.getInt() != MAGIC){
+                throw new IOException(filename+" is no snapshot file");
+            }
+            int version = in.getInt();
+            if(version != VERSION){
+                throw new IOException("Unsupported snapshot version "+version+", expected "+VERSION);
+            }
+            return in;
+        }
+    }
+
+    /**
+     * Writes the header of a snapshot
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the file can not be written
+     */
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in){
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the first length values of an array with the length in front
+     */
+    static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+        out.writeInt(length);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for(int i = 0; i < length; i++){
+            if(buffer.remaining() < 4){
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            buffer.putInt(values[i]);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    static int[] readInts(ByteBuffer in){
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position()+values.length*4);
+        return values;
+    }
+
+    /**
+     * Writes the first length values of an array with the length in front
+     */
+    static void writeDoubles(DataOutputStream out, double[] values, int length) throws IOException {
+        out.writeInt(length);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for(int i = 0; i < length; i++){
+            if(buffer.remaining() < 8){
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            buffer.putDouble(values[i]);
+        }
+        out.write(buffer.array(), 0, buffer.position());
+    }
+
+    static double[] readDoubles(ByteBuffer in){
+        double[] values = new double[in.getInt()];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position()+values.length*8);
+        return values;
+    }
+}
@@ -0,0 +1,43 @@
+package knn;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Calculates the squared Euklidian distance in SIMD lanes with the JDK Vector API
+ * Needs JDK 16+ and the incubator module (compile and run with --add-modules jdk.incubator.vector), use
+ * DistanceKernel.vectorOrScalar() to fall back to the scalar kernel if the module is not available.
+ * Each lane sums up its own part of the row and the lanes are added at the end, so the sum is reassociated
+ * compared to the scalar kernel. The result can differ in the last bits, which can only change the order of
+ * datasets which are (nearly) equally far away from a candidate.
+ */
+public class VectorDistanceKernel implements DistanceKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Creates a new instance of the vector kernel
+     */
+    public VectorDistanceKernel(){
+    }
+
+    @Override
+    public double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int length){
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        int i = 0;
+        int upperBound = SPECIES.loopBound(length);
+        for(; i < upperBound; i += SPECIES.length()){
+            DoubleVector diff = DoubleVector.fromArray(SPECIES, a, aOffset+i)
+                    .sub(DoubleVector.fromArray(SPECIES, b, bOffset+i));
+            sums = diff.fma(diff, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+
+        // Remaining values which do not fill a whole vector
+        for(; i < length; i++){
+            double diff = a[aOffset+i]-b[bOffset+i];
+            sum += diff*diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,191 @@
+package knn;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * A vantage-point tree over a list of training datasets
+ * The tree only relies on the triangle inequality of the distance, so unlike the KdTree it can also prune datasets
+ * with text attributes. The sum of the Euklidian distance of the numeric attributes and the Levenshtein distances
+ * of the text attributes is a metric, because each part is one.
+ * Each node picks a vantage point and splits the remaining datasets at the median distance to it.
+ */
+public class VpTree implements NeighbourIndex {
+    private static final int LEAF_SIZE = 8;
+    // Slack for the pruning, so rounding errors of the distances can never drop a real neighbour
+    private static final double EPSILON = 1e-9;
+    // Heap of the searches, reused by all queries of a thread
+    private static final ThreadLocal<NeighbourHeap> HEAPS = ThreadLocal.withInitial(() -> new NeighbourHeap(0));
+
+    private ArrayList<Dataset> train;
+    private int[] order;
+    private double[] thresholds;
+    private DistanceMetric metric;
+
+    /**
+     * Creates a new vantage-point tree over the given training datasets
+     * @param train an ArrayList of Dataset instances which should be indexed, the list must not be changed afterwards
+     * @param metric the DistanceMetric which calculates the distance of the numeric attributes while building
+     */
+    public VpTree(ArrayList<Dataset> train, DistanceMetric metric){
+        this.train = train;
+        this.metric = metric;
+        this.order = new int[train.size()];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        this.thresholds = new double[train.size()];
+        build(new double[train.size()], new Random(order.length), 0, order.length);
+    }
+
+    /**
+     * Restores a vantage-point tree which was written by writeSnapshot over the same training datasets
+     * @param train an ArrayList of Dataset instances in the same order as when the tree was built
+     * @param in a ByteBuffer positioned at the start of the tree
+     */
+    VpTree(ArrayList<Dataset> train, ByteBuffer in){
+        this.train = train;
+        this.order = SnapshotIO.readInts(in);
+        this.thresholds = SnapshotIO.readDoubles(in);
+    }
+
+    @Override
+    public ArrayList<Dataset> nearest(DatasetEuklidianComparator cmp, int k){
+        Dataset[] result = new Dataset[Math.max(0, Math.min(k, train.size()))];
+        return NeighbourIndex.toList(result, nearest(cmp, k, result));
+    }
+
+    @Override
+    public int nearest(DatasetEuklidianComparator cmp, int k, Dataset[] result){
+        if(k <= 0 || train.isEmpty()){
+            return 0;
+        }
+
+        NeighbourHeap heap = HEAPS.get();
+        heap.reset(Math.min(k, train.size()));
+        search(cmp, heap, 0, order.length);
+
+        int count = heap.sortInPlace();
+        for(int i = 0; i < count; i++){
+            result[i] = train.get(heap.getSortedIndex(i));
+        }
+        return count;
+    }
+
+    @Override
+    public int size(){
+        return train.size();
+    }
+
+    /**
+     * Writes the structure of the tree to a snapshot
+     * @param out the DataOutputStream of the snapshot file
+     * @throws IOException if the snapshot can not be written
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        SnapshotIO.writeInts(out, order, order.length);
+        SnapshotIO.writeDoubles(out, thresholds, thresholds.length);
+    }
+
+    /**
+     * Recursively picks a random vantage point for the given range of the order array and splits the other datasets
+     * at the median distance: the inner half is not farther than the threshold, the outer half not nearer
+     */
+    private void build(double[] distances, Random random, int from, int to){
+        if(to-from <= LEAF_SIZE){
+            return;
+        }
+
+        swap(from, from+random.nextInt(to-from));
+        DatasetEuklidianComparator cmp = new DatasetEuklidianComparator(train.get(order[from]), metric);
+        for(int i = from+1; i < to; i++){
+            distances[order[i]] = cmp.distance(train.get(order[i]));
+        }
+
+        int median = (from+1+to) >>> 1;
+        select(distances, from+1, to-1, median);
+        thresholds[from] = distances[order[median]];
+
+        build(distances, random, from+1, median);
+        build(distances, random, median, to);
+    }
+
+    /**
+     * Partially sorts the given range of the order array by distance (quickselect), so the median is at its position
+     */
+    private void select(double[] distances, int left, int right, int nth){
+        while(right > left){
+            double pivot = distances[order[(left+right) >>> 1]];
+            int i = left, j = right;
+            while(i <= j){
+                while(distances[order[i]] < pivot) i++;
+                while(distances[order[j]] > pivot) j--;
+                if(i <= j){
+                    swap(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if(nth <= j){
+                right = j;
+            }else if(nth >= i){
+                left = i;
+            }else{
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches the given range of the tree and visits the other half of a node only if the triangle inequality
+     * allows it to contain a dataset which is not farther than the current k-th neighbour
+     */
+    private void search(DatasetEuklidianComparator cmp, NeighbourHeap heap, int from, int to){
+        cmp.countVisitedNode();
+        if(to-from <= LEAF_SIZE){
+            for(int i = from; i < to; i++){
+                heap.offer(cmp.distance(train.get(order[i]), heap.worstDistance()), order[i]);
+            }
+            return;
+        }
+
+        // The exact distance of the vantage point is needed for the pruning, so it is calculated without a bound
+        double dist = cmp.distance(train.get(order[from]));
+        heap.offer(dist, order[from]);
+
+        int median = (from+1+to) >>> 1;
+        double threshold = thresholds[from];
+        if(dist < threshold){
+            search(cmp, heap, from+1, median);
+            if(canContain(threshold-dist, heap)){
+                search(cmp, heap, median, to);
+            }else{
+                cmp.countPrunedNode();
+            }
+        }else{
+            search(cmp, heap, median, to);
+            if(canContain(dist-threshold, heap)){
+                search(cmp, heap, from+1, median);
+            }else{
+                cmp.countPrunedNode();
+            }
+        }
+    }
+
+    /**
+     * Checks if a part of the tree whose datasets are at least the given distance away can contain a neighbour
+     */
+    private boolean canContain(double lowerBound, NeighbourHeap heap){
+        double worst = heap.worstDistance();
+        return lowerBound <= worst+EPSILON*(1.0+worst);
+    }
+
+    private void swap(int a, int b){
+        int tmp = order[a];
+        order[a] = order[b];
+        order[b] = tmp;
+    }
+}
@@ -0,0 +1,86 @@
+package knn;
+
+/**
+ * The Euklidian distance of the numeric attributes where the squared difference of each attribute is multiplied
+ * by a weight
+ */
+public class WeightedEuclideanMetric implements DistanceMetric {
+    private double[] weights;
+    private double[] axisWeights;
+
+    /**
+     * Creates a new instance of the weighted Euklidian metric
+     * @param weights a double-Array containing one weight per numeric attribute in the order of the numeric slots
+     *                (text attributes are skipped)
+     */
+    public WeightedEuclideanMetric(double[] weights){
+        this.weights = weights.clone();
+        this.axisWeights = new double[weights.length];
+        for(int i = 0; i < weights.length; i++){
+            if(!(weights[i] >= 0)){
+                throw new IllegalArgumentException("Weights must not be negative");
+            }
+            // The root of the weight is rounded differently than the root of the whole sum, so the lower bound is
+            // made a little smaller
+            axisWeights[i] = Math.sqrt(weights[i])*(1-EARLY_ABANDON_SLACK);
+        }
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        double[] weights = this.weights;
+        if(weights.length != candidate.length){
+            throw new IllegalArgumentException("Expected " + candidate.length + " weights, got " + weights.length);
+        }
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS
+                && exceedsBound(row, offset, order, orderedCandidate, bound*bound*(1+EARLY_ABANDON_SLACK))){
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double sum = 0.0;
+        for(int i = 0; i < candidate.length; i++){
+            double diff = row[offset+i]-candidate[i];
+            sum += weights[i]*diff*diff;
+        }
+        double dist = Math.sqrt(sum);
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    /**
+     * Sums up the weighted squared differences in the order of descending variance and checks the limit after
+     * every 8 attributes
+     * @return true if the squared distance is larger than the limit
+     */
+    private boolean exceedsBound(double[] row, int offset, int[] order, double[] values, double limit){
+        double[] weights = this.weights;
+        double sum = 0.0;
+        int i = 0;
+        while(i < order.length){
+            int end = Math.min(i+8, order.length);
+            for(; i < end; i++){
+                double diff = row[offset+order[i]]-values[i];
+                sum += weights[order[i]]*diff*diff;
+            }
+            if(sum > limit){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        return axisWeights[slot]*difference;
+    }
+
+    @Override
+    public boolean isMetric(){
+        return true;
+    }
+
+    @Override
+    public double[] getParameters(){
+        return weights.clone();
+    }
+}
@@ -0,0 +1,79 @@
+package knn;
+
+/**
+ * The Manhattan distance of the numeric attributes where the absolute difference of each attribute is multiplied
+ * by a weight
+ */
+public class WeightedManhattanMetric implements DistanceMetric {
+    private double[] weights;
+
+    /**
+     * Creates a new instance of the weighted Manhattan metric
+     * @param weights a double-Array containing one weight per numeric attribute in the order of the numeric slots
+     *                (text attributes are skipped)
+     */
+    public WeightedManhattanMetric(double[] weights){
+        this.weights = weights.clone();
+        for(int i = 0; i < weights.length; i++){
+            if(!(weights[i] >= 0)){
+                throw new IllegalArgumentException("Weights must not be negative");
+            }
+        }
+    }
+
+    @Override
+    public double distance(double[] row, int offset, double rowNorm, double[] candidate, double candidateNorm,
+                           int[] order, double[] orderedCandidate, double bound){
+        double[] weights = this.weights;
+        if(weights.length != candidate.length){
+            throw new IllegalArgumentException("Expected " + candidate.length + " weights, got " + weights.length);
+        }
+        if(bound < Double.POSITIVE_INFINITY && candidate.length >= EARLY_ABANDON_COLUMNS
+                && exceedsBound(row, offset, order, orderedCandidate, bound*(1+EARLY_ABANDON_SLACK))){
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double dist = 0.0;
+        for(int i = 0; i < candidate.length; i++){
+            dist += weights[i]*Math.abs(row[offset+i]-candidate[i]);
+        }
+        return dist > bound ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    /**
+     * Sums up the weighted absolute differences in the order of descending variance and checks the limit after
+     * every 8 attributes
+     * @return true if the distance is larger than the limit
+     */
+    private boolean exceedsBound(double[] row, int offset, int[] order, double[] values, double limit){
+        double[] weights = this.weights;
+        double sum = 0.0;
+        int i = 0;
+        while(i < order.length){
+            int end = Math.min(i+8, order.length);
+            for(; i < end; i++){
+                sum += weights[order[i]]*Math.abs(row[offset+order[i]]-values[i]);
+            }
+            if(sum > limit){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public double axisDistance(int slot, double difference){
+        // The product is rounded differently than the whole sum, so the lower bound is made a little smaller
+        return weights[slot]*difference*(1-EARLY_ABANDON_SLACK);
+    }
+
+    @Override
+    public boolean isMetric(){
+        return true;
+    }
+
+    @Override
+    public double[] getParameters(){
+        return weights.clone();
+    }
+}